@@ -0,0 +1,362 @@
+package com.good.job.interview;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 压缩文件流式读写工具类（可复用工具类）
+ * 输入：按文件头魔数自动识别gzip，解压（普通文件为磁盘读取）在后台线程进行，通过两块缓冲区交替与解析线程流水线并行；
+ * 输出：文件名以 .gz 结尾时自动gzip压缩。只依赖JDK自带的java.util.zip
+ */
+public final class CompressedIO {
+    /**
+     * gzip压缩文件的扩展名
+     */
+    public static final String GZIP_SUFFIX = ".gz";
+
+    // 单核机器上预读线程与解析线程无法并行，多一次拷贝反而更慢，改走MMap零拷贝读取
+    private static final boolean PREFETCH_ENABLED = Runtime.getRuntime().availableProcessors() > 1;
+    // 流水线每块缓冲区大小（1MB）
+    private static final int PIPELINE_CHUNK_SIZE = 1024 * 1024;
+    // gzip内部缓冲区大小（64KB）
+    private static final int GZIP_BUFFER_SIZE = 64 * 1024;
+    // 按行读取流时的缓冲区大小（4MB，需大于最长的一行）
+    private static final int LINE_BUFFER_SIZE = 4 * 1024 * 1024;
+    // 指定块大小按行读取时最多同时占用的块数（预读：4块 + 跨块拼接1块；gzip：2块流水线 + 行缓冲区的数组和直接缓冲区）
+    private static final int READ_BLOCKS_IN_MEMORY = 5;
+    // 指定块大小按行读取时与块大小无关的内存开销（gzip内部缓冲区、解压窗口、缓冲区页对齐等，128KB）
+    private static final long READ_FIXED_OVERHEAD = 128 * 1024;
+
+    // gzip魔数：1f 8b
+    private static final int GZIP_MAGIC = 0x1f8b;
+    // zstd魔数：28 b5 2f fd（小端存储的0xFD2FB528）
+    private static final int ZSTD_MAGIC = 0x28b52ffd;
+
+    private CompressedIO() {
+    }
+
+    /**
+     * 判断文件是否为压缩文件（按文件头魔数判断，不依赖扩展名）
+     */
+    public static boolean isCompressed(File file) throws IOException {
+        int magic = readMagic(file);
+        return (magic >>> 16) == GZIP_MAGIC || magic == ZSTD_MAGIC;
+    }
+
+    /**
+     * 打开输入流：gzip文件返回后台解压的流水线输入流，普通文件返回后台预读的流水线输入流
+     */
+    public static InputStream openInput(File file) throws IOException {
+        return openInput(file, PIPELINE_CHUNK_SIZE);
+    }
+
+    private static InputStream openInput(File file, int chunkSize) throws IOException {
+        if (!file.exists()) {
+            throw new FileNotFoundException("文件不存在：" + file);
+        }
+        int magic = readMagic(file);
+        if (magic == ZSTD_MAGIC) {
+            throw new IOException("暂不支持zstd压缩文件（JDK未内置zstd编解码器）：" + file + "，请转为gzip格式");
+        }
+        InputStream in = new FileInputStream(file);
+        if ((magic >>> 16) == GZIP_MAGIC) {
+            return new PipelinedInputStream(new GZIPInputStream(in, GZIP_BUFFER_SIZE), chunkSize, "Decompress-" + file.getName());
+        }
+        return new PipelinedInputStream(in, chunkSize, "Prefetch-" + file.getName());
+    }
+
+    /**
+     * 打开输出流：文件名以 .gz 结尾时gzip压缩写入
+     * （追加模式下每次打开会追加一个新的gzip成员，GZIPInputStream可连续读出多个成员）
+     */
+    public static OutputStream openOutput(File file, boolean append) throws IOException {
+        OutputStream out = new FileOutputStream(file, append);
+        if (file.getName().endsWith(GZIP_SUFFIX)) {
+            return new GZIPOutputStream(out, GZIP_BUFFER_SIZE);
+        }
+        return new BufferedOutputStream(out, GZIP_BUFFER_SIZE);
+    }
+
+    /**
+     * 按行读取文件：普通文件由I/O线程异步预读（单核机器走MMap），压缩文件走后台解压流水线
+     */
+    public static void readLines(File file, MappedLineReader.LineHandler handler) throws IOException {
+        readLines(file, 0, handler);
+    }
+
+    /**
+     * 从指定偏移量开始按行读取文件（用于断点续跑，偏移量需位于行首）
+     *
+     * @param startOffset 起始偏移量（压缩文件为解压后的偏移量，需先解压跳过之前的数据；超过文件长度时没有可读的行）
+     */
+    public static void readLines(File file, long startOffset, MappedLineReader.LineHandler handler) throws IOException {
+        readLines(file, startOffset, LINE_BUFFER_SIZE, handler);
+    }
+
+    /**
+     * 按指定块大小从指定偏移量开始按行读取文件，读取占用的内存不超过 readMemory(blockSize)（用于内存受限的场景）
+     * （单核机器走MMap时映射的是文件页缓存，不计入）
+     *
+     * @param blockSize 块大小（PrefetchingLineReader.BLOCK_ALIGNMENT的整数倍，且需大于最长的一行）
+     */
+    public static void readLines(File file, long startOffset, int blockSize, MappedLineReader.LineHandler handler) throws IOException {
+        if (!file.exists()) {
+            throw new FileNotFoundException("文件不存在：" + file);
+        }
+        if (!isCompressed(file)) {
+            try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+                 FileChannel channel = raf.getChannel()) {
+                if (PREFETCH_ENABLED) {
+                    PrefetchingLineReader.readLines(channel, startOffset, channel.size(), blockSize, handler);
+                } else {
+                    MappedLineReader.readLines(channel, startOffset, channel.size(), handler);
+                }
+            }
+            return;
+        }
+        try (InputStream in = openInput(file, Math.min(PIPELINE_CHUNK_SIZE, blockSize))) {
+            long remaining = startOffset;
+            while (remaining > 0) {
+                long skipped = in.skip(remaining);
+                if (skipped <= 0) {
+                    // 已到文件末尾，没有剩余的行
+                    return;
+                }
+                remaining -= skipped;
+            }
+            readLines(in, blockSize, handler);
+        }
+    }
+
+    /**
+     * 按指定块大小按行读取时最多占用的内存（字节）
+     */
+    public static long readMemory(int blockSize) {
+        return (long) READ_BLOCKS_IN_MEMORY * blockSize + READ_FIXED_OVERHEAD;
+    }
+
+    /**
+     * 按行读取占用的内存不超过memoryLimit时可用的最大块大小（按页对齐，不超过默认块大小）
+     */
+    public static int blockSizeFor(long memoryLimit) {
+        long blockSize = (memoryLimit - READ_FIXED_OVERHEAD) / READ_BLOCKS_IN_MEMORY;
+        blockSize -= blockSize % PrefetchingLineReader.BLOCK_ALIGNMENT;
+        if (blockSize < PrefetchingLineReader.BLOCK_ALIGNMENT) {
+            throw new IllegalArgumentException("按行读取的内存上限过小：" + memoryLimit);
+        }
+        return (int) Math.min(PrefetchingLineReader.DEFAULT_BLOCK_SIZE, blockSize);
+    }
+
+    /**
+     * 按行读取输入流（跨缓冲区边界的半行移到缓冲区开头，与下一次读取的数据拼接）
+     */
+    public static void readLines(InputStream in, MappedLineReader.LineHandler handler) throws IOException {
+        readLines(in, LINE_BUFFER_SIZE, handler);
+    }
+
+    private static void readLines(InputStream in, int bufferSize, MappedLineReader.LineHandler handler) throws IOException {
+        byte[] bytes = new byte[bufferSize];
+        // 读到的数据同步拷贝到一块复用的直接缓冲区，回调统一收到只读的直接缓冲区视图
+        // （与MappedLineReader、PrefetchingLineReader一致），解析代码中ByteBuffer.get的调用点只见到一种实现
+        ByteBuffer direct = ByteBuffer.allocateDirect(bufferSize);
+        ByteBuffer buf = direct.asReadOnlyBuffer();
+        int filled = 0;
+        while (true) {
+            int read = in.read(bytes, filled, bytes.length - filled);
+            if (read < 0) {
+                break;
+            }
+            direct.position(filled);
+            direct.put(bytes, filled, read);
+            filled += read;
+
+            int lineStart = 0;
+            int lineEnd;
+            while ((lineEnd = IdBytesParser.indexOfNewline(buf, lineStart, filled)) >= 0) {
+                handler.onLine(buf, lineStart, lineEnd);
+                lineStart = lineEnd + 1;
+            }
+            if (lineStart == 0 && filled == bytes.length) {
+                throw new IOException("单行长度超过缓冲区大小：" + bufferSize);
+            }
+            // 剩余的半行移到缓冲区开头（两块缓冲区保持一致）
+            System.arraycopy(bytes, lineStart, bytes, 0, filled - lineStart);
+            filled -= lineStart;
+            direct.position(0);
+            direct.put(bytes, 0, filled);
+        }
+        // 处理最后一行（无换行符的情况）
+        if (filled > 0) {
+            handler.onLine(buf, 0, filled);
+        }
+    }
+
+    /**
+     * 读取文件头4个字节（文件不足4字节时高位补0）
+     */
+    private static int readMagic(File file) throws IOException {
+        try (InputStream in = new FileInputStream(file)) {
+            int magic = 0;
+            for (int i = 0; i < 4; i++) {
+                int b = in.read();
+                magic = (magic << 8) | (b < 0 ? 0 : b);
+            }
+            return magic;
+        }
+    }
+
+    /**
+     * 后台流水线输入流（gzip文件在后台解压，普通文件在后台预读）
+     * 后台线程把数据写入空闲缓冲区后放入就绪队列，读取方消费完后归还到空闲队列；
+     * 两块缓冲区交替使用，解压 / 磁盘读取与解析同时进行
+     */
+    private static final class PipelinedInputStream extends InputStream {
+        private final InputStream source;
+        private final BlockingQueue<byte[]> freeChunks = new ArrayBlockingQueue<>(2);
+        private final BlockingQueue<Chunk> readyChunks = new ArrayBlockingQueue<>(2);
+        private final Thread worker;
+        private Chunk current;
+        private int position;
+
+        PipelinedInputStream(InputStream source, int chunkSize, String threadName) {
+            this.source = source;
+            freeChunks.add(new byte[chunkSize]);
+            freeChunks.add(new byte[chunkSize]);
+            this.worker = new Thread(this::produce, threadName);
+            worker.setDaemon(true);
+            worker.start();
+        }
+
+        /**
+         * 后台线程：循环填满空闲缓冲区并交给读取方
+         */
+        private void produce() {
+            try {
+                while (true) {
+                    byte[] data = freeChunks.take();
+                    int length = 0;
+                    int read = 0;
+                    while (length < data.length && (read = source.read(data, length, data.length - length)) >= 0) {
+                        length += read;
+                    }
+                    if (length > 0) {
+                        readyChunks.put(new Chunk(data, length, null));
+                    }
+                    if (read < 0) {
+                        readyChunks.put(Chunk.EOF);
+                        return;
+                    }
+                }
+            } catch (InterruptedException e) {
+                // 读取方已关闭流
+            } catch (IOException e) {
+                try {
+                    readyChunks.put(new Chunk(null, 0, e));
+                } catch (InterruptedException ignored) {
+                    // 读取方已关闭流
+                }
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (!ensureData()) {
+                return -1;
+            }
+            int n = Math.min(len, current.length - position);
+            System.arraycopy(current.data, position, b, off, n);
+            position += n;
+            return n;
+        }
+
+        /**
+         * 直接在缓冲区内移动位置，跳过时不拷贝数据（断点续跑时跳过已处理的部分）
+         */
+        @Override
+        public long skip(long n) throws IOException {
+            if (n <= 0 || !ensureData()) {
+                return 0;
+            }
+            int skipped = (int) Math.min(n, current.length - position);
+            position += skipped;
+            return skipped;
+        }
+
+        /**
+         * 当前缓冲区读完时归还并取下一块
+         *
+         * @return false表示已读到末尾
+         */
+        private boolean ensureData() throws IOException {
+            if (current != null && current.error != null) {
+                throw new IOException("后台读取失败", current.error);
+            }
+            if (current != null && position < current.length) {
+                return true;
+            }
+            if (current == Chunk.EOF) {
+                return false;
+            }
+            try {
+                if (current != null) {
+                    freeChunks.put(current.data);
+                }
+                current = readyChunks.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("等待后台读取数据时被中断");
+            }
+            position = 0;
+            if (current.error != null) {
+                throw new IOException("后台读取失败", current.error);
+            }
+            return current != Chunk.EOF;
+        }
+
+        @Override
+        public void close() throws IOException {
+            worker.interrupt();
+            source.close();
+        }
+    }
+
+    /**
+     * 流水线中的一块数据
+     */
+    private static final class Chunk {
+        static final Chunk EOF = new Chunk(null, 0, null);
+
+        final byte[] data;
+        final int length;
+        final IOException error;
+
+        Chunk(byte[] data, int length, IOException error) {
+            this.data = data;
+            this.length = length;
+            this.error = error;
+        }
+    }
+}
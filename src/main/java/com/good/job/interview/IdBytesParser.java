@@ -0,0 +1,199 @@
+package com.good.job.interview;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * 字节级ID解析工具类（可复用工具类）
+ * 直接在ByteBuffer上按字节解析十进制ID，避免 byte -> char -> String -> Long.parseLong 的对象创建开销；
+ * 数字转换和换行符查找按SWAR（SIMD Within A Register）方式一次处理8个字节，不足8字节的尾部逐字节处理
+ */
+public final class IdBytesParser {
+    /**
+     * 空行标记：ID均为非负数，返回该值表示当前行没有有效数字
+     */
+    public static final long EMPTY = -1L;
+    /**
+     * 宽ID低位段的十进制位数（低位段取值范围[0, 10^18)）
+     */
+    public static final int WIDE_LOW_DIGITS = 18;
+    /**
+     * 宽ID支持的最大十进制位数
+     */
+    public static final int WIDE_MAX_DIGITS = 36;
+
+    // SWAR常量：8个字节各自对应的掩码
+    private static final long ASCII_ZEROS = 0x3030303030303030L;
+    private static final long NEWLINES = 0x0A0A0A0A0A0A0A0AL;
+    private static final long LOW_7_BITS = 0x7F7F7F7F7F7F7F7FL;
+    private static final long HIGH_NIBBLES = 0xF0F0F0F0F0F0F0F0L;
+    private static final long DIGIT_OVERFLOW = 0x0606060606060606L;
+    private static final long EIGHT_DIGITS_BASE = 100000000L;
+
+    private IdBytesParser() {
+    }
+
+    /**
+     * 解析buffer中[start, end)区间的一行十进制ID（使用绝对位置读取，不修改buffer的position，可多线程共享同一buffer）
+     * 说明：超过19位的ID（如20位用户ID）会按2^64取模折叠为long，
+     * 同一前缀下的20位ID后缀不超过16位，折叠后仍然一一对应，适合布隆过滤器等哈希型结构
+     *
+     * @param buf   数据缓冲区
+     * @param start 行起始位置（包含）
+     * @param end   行结束位置（不包含，不含换行符）
+     * @return 解析出的ID；空行返回 {@link #EMPTY}
+     */
+    public static long parseLong(ByteBuffer buf, int start, int end) {
+        // 去掉首尾空白（兼容\r\n换行和行尾空格）
+        while (start < end && isBlank(buf.get(start))) {
+            start++;
+        }
+        while (end > start && isBlank(buf.get(end - 1))) {
+            end--;
+        }
+        if (start == end) {
+            return EMPTY;
+        }
+
+        return accumulateDigits(buf, start, end, 0);
+    }
+
+    /**
+     * 解析任意长度（不超过36位）的十进制ID，按十进制拆分为高位段和低18位两段：value = hi * 10^18 + lo
+     * 两段均为非负long，按(hi, lo)字典序比较即为数值大小顺序，可覆盖20位用户ID及64/128位整型ID的常见取值
+     *
+     * @param out 输出数组，out[0]为高位段，out[1]为低18位
+     * @return false表示空行
+     */
+    public static boolean parseWide(ByteBuffer buf, int start, int end, long[] out) {
+        while (start < end && isBlank(buf.get(start))) {
+            start++;
+        }
+        while (end > start && isBlank(buf.get(end - 1))) {
+            end--;
+        }
+        if (start == end) {
+            return false;
+        }
+        // 去掉前导零，保证位数判断准确
+        while (start < end - 1 && buf.get(start) == '0') {
+            start++;
+        }
+        if (end - start > WIDE_MAX_DIGITS) {
+            throw new NumberFormatException("ID位数超过" + WIDE_MAX_DIGITS + "位，位置：" + start);
+        }
+
+        int lowStart = Math.max(start, end - WIDE_LOW_DIGITS);
+        out[0] = accumulateDigits(buf, start, lowStart, 0);
+        out[1] = accumulateDigits(buf, lowStart, end, 0);
+        return true;
+    }
+
+    /**
+     * 把[start, end)内的十进制数字依次累加到value上（按2^64取模）
+     * 每次读取8个字节，8个都是数字时用SWAR一次转换；遇到非数字或不足8字节时逐字节处理，
+     * 非法字符由逐字节循环报告准确位置
+     */
+    private static long accumulateDigits(ByteBuffer buf, int start, int end, long value) {
+        boolean bigEndian = buf.order() == ByteOrder.BIG_ENDIAN;
+        int i = start;
+        for (; i + Long.BYTES <= end; i += Long.BYTES) {
+            long chunk = buf.getLong(i);
+            if (bigEndian) {
+                // 转为第一个字符在最低字节的排列
+                chunk = Long.reverseBytes(chunk);
+            }
+            if (!isEightDigits(chunk)) {
+                break;
+            }
+            value = value * EIGHT_DIGITS_BASE + parseEightDigits(chunk);
+        }
+        for (; i < end; i++) {
+            int digit = buf.get(i) - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException("非法ID字符：" + (char) buf.get(i) + "，位置：" + i);
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    /**
+     * 8个字节是否都是'0'-'9'：高4位都是3，且加6后高4位仍是3（排除':'到'?'）
+     */
+    private static boolean isEightDigits(long chunk) {
+        return (chunk & HIGH_NIBBLES) == ASCII_ZEROS
+                && ((chunk + DIGIT_OVERFLOW) & HIGH_NIBBLES) == ASCII_ZEROS;
+    }
+
+    /**
+     * 把8个ASCII数字（第一个字符在最低字节）转换为整数：相邻1位、2位、4位依次两两合并，共3步乘加
+     */
+    private static long parseEightDigits(long chunk) {
+        long digits = chunk - ASCII_ZEROS;
+        // 每16位的低字节 = 前一位 * 10 + 后一位
+        digits = digits * 10 + (digits >>> 8);
+        // 每32位 = 前两位 * 100 + 后两位，再合并为 前四位 * 10000 + 后四位（结果在高32位）
+        return (((digits & 0x000000FF000000FFL) * (100 + (1000000L << 32)))
+                + (((digits >>> 16) & 0x000000FF000000FFL) * (1 + (10000L << 32)))) >>> 32;
+    }
+
+    /**
+     * 将(hi, lo)两段表示的ID按十进制写入buffer（与parseWide互逆，不含前导零）
+     *
+     * @param scratch 长度不小于20的临时数组，避免每次调用分配
+     */
+    public static void writeWide(ByteBuffer buf, long hi, long lo, byte[] scratch) {
+        if (hi == 0) {
+            writeDigits(buf, lo, 0, scratch);
+        } else {
+            writeDigits(buf, hi, 0, scratch);
+            writeDigits(buf, lo, WIDE_LOW_DIGITS, scratch);
+        }
+    }
+
+    /**
+     * 写入非负数value的十进制数字，位数不足minDigits时补前导零
+     */
+    private static void writeDigits(ByteBuffer buf, long value, int minDigits, byte[] scratch) {
+        int pos = scratch.length;
+        do {
+            scratch[--pos] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        while (scratch.length - pos < minDigits) {
+            scratch[--pos] = '0';
+        }
+        buf.put(scratch, pos, scratch.length - pos);
+    }
+
+    /**
+     * 从from开始查找下一个换行符'\n'的位置
+     *
+     * @return 换行符位置；[from, to)内不存在时返回-1
+     */
+    public static int indexOfNewline(ByteBuffer buf, int from, int to) {
+        boolean bigEndian = buf.order() == ByteOrder.BIG_ENDIAN;
+        int i = from;
+        for (; i + Long.BYTES <= to; i += Long.BYTES) {
+            // 等于'\n'的字节异或后为0；下式把值为0的字节的最高位置1、其余字节全为0（逐字节计算，没有跨字节进位误报）
+            long x = buf.getLong(i) ^ NEWLINES;
+            long zeros = ~(((x & LOW_7_BITS) + LOW_7_BITS) | x | LOW_7_BITS);
+            if (zeros != 0) {
+                // 大端序下内存中靠前的字节在高位
+                int index = bigEndian ? Long.numberOfLeadingZeros(zeros) : Long.numberOfTrailingZeros(zeros);
+                return i + (index >>> 3);
+            }
+        }
+        for (; i < to; i++) {
+            if (buf.get(i) == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isBlank(byte b) {
+        return b == ' ' || b == '\t' || b == '\r';
+    }
+}
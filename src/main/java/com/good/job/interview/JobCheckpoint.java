@@ -0,0 +1,95 @@
+package com.good.job.interview;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * 任务检查点（可复用工具类）
+ * 以键值对形式记录长时间任务的进度（输入偏移量、已完成的分片、中间计数等），
+ * 保存时先写临时文件再原子重命名，进程在任意时刻崩溃都不会留下写了一半的检查点
+ */
+public class JobCheckpoint {
+    private final File file;
+    private final Properties values = new Properties();
+
+    /**
+     * 构造函数：检查点文件已存在时加载其中的进度
+     *
+     * @param file 检查点文件
+     */
+    public JobCheckpoint(File file) throws IOException {
+        this.file = file;
+        if (file.exists()) {
+            try (InputStream in = Files.newInputStream(file.toPath())) {
+                values.load(in);
+            }
+        }
+    }
+
+    /**
+     * 是否加载到了上次保存的进度
+     */
+    public synchronized boolean isResumed() {
+        return !values.isEmpty();
+    }
+
+    public synchronized long getLong(String key, long defaultValue) {
+        String value = values.getProperty(key);
+        return value == null ? defaultValue : Long.parseLong(value);
+    }
+
+    public synchronized void setLong(String key, long value) {
+        values.setProperty(key, Long.toString(value));
+    }
+
+    public synchronized String getString(String key) {
+        return values.getProperty(key);
+    }
+
+    public synchronized void setString(String key, String value) {
+        values.setProperty(key, value);
+    }
+
+    /**
+     * 获取指定前缀的所有计数（返回的键已去掉前缀），如已完成分片的UV
+     */
+    public synchronized Map<String, Long> getLongs(String prefix) {
+        Map<String, Long> result = new HashMap<>();
+        for (String key : values.stringPropertyNames()) {
+            if (key.startsWith(prefix)) {
+                result.put(key.substring(prefix.length()), Long.parseLong(values.getProperty(key)));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 保存检查点：写临时文件后原子替换
+     */
+    public synchronized void save() throws IOException {
+        Path target = file.getAbsoluteFile().toPath();
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp.toFile())) {
+            values.store(out, null);
+            // 落盘后再重命名，避免机器掉电时替换成空文件
+            out.getFD().sync();
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * 任务完成后删除检查点
+     */
+    public synchronized void delete() throws IOException {
+        values.clear();
+        Files.deleteIfExists(file.toPath());
+    }
+}
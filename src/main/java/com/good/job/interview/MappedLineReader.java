@@ -0,0 +1,134 @@
+package com.good.job.interview;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * 滑动窗口MMap按行读取工具类（可复用工具类）
+ * FileChannel.map单次映射不能超过Integer.MAX_VALUE（2GB），本工具按固定大小的窗口依次映射文件，
+ * 每个窗口只处理到最后一个完整行，跨窗口边界的行留给下一个窗口从行首重新映射，
+ * 窗口处理完立即解除映射，因此可以零拷贝地读取任意大小的文件
+ */
+public final class MappedLineReader {
+    /**
+     * 默认窗口大小：256MB
+     */
+    public static final long DEFAULT_WINDOW_SIZE = 256L * 1024 * 1024;
+
+    // 解除映射的方法（sun.misc.Unsafe#invokeCleaner，不可用时为null，退化为等待GC回收）
+    private static final Method INVOKE_CLEANER;
+    private static final Object UNSAFE;
+
+    static {
+        Method invokeCleaner = null;
+        Object unsafe = null;
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            unsafe = theUnsafe.get(null);
+            invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            invokeCleaner = null;
+            unsafe = null;
+        }
+        INVOKE_CLEANER = invokeCleaner;
+        UNSAFE = unsafe;
+    }
+
+    private MappedLineReader() {
+    }
+
+    /**
+     * 行处理回调
+     */
+    @FunctionalInterface
+    public interface LineHandler {
+        /**
+         * 处理一行数据
+         *
+         * @param buf   当前窗口的映射缓冲区（回调返回后可能被解除映射，不能保存引用）
+         * @param start 行起始位置（包含）
+         * @param end   行结束位置（不包含，不含换行符）
+         */
+        void onLine(ByteBuffer buf, int start, int end) throws IOException;
+    }
+
+    /**
+     * 使用默认窗口大小按行读取[start, end)区间
+     */
+    public static void readLines(FileChannel channel, long start, long end, LineHandler handler) throws IOException {
+        readLines(channel, start, end, DEFAULT_WINDOW_SIZE, handler);
+    }
+
+    /**
+     * 按行读取文件的[start, end)区间（start需位于行首）
+     *
+     * @param channel    文件通道
+     * @param start      起始位置（包含）
+     * @param end        结束位置（不包含）
+     * @param windowSize 窗口大小（不超过Integer.MAX_VALUE，且需大于最长的一行）
+     * @param handler    行处理回调
+     */
+    public static void readLines(FileChannel channel, long start, long end, long windowSize, LineHandler handler) throws IOException {
+        if (windowSize <= 0 || windowSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("窗口大小必须在(0, Integer.MAX_VALUE]之间：" + windowSize);
+        }
+
+        long pos = start;
+        while (pos < end) {
+            long mapSize = Math.min(windowSize, end - pos);
+            boolean lastWindow = pos + mapSize == end;
+            MappedByteBuffer mbb = channel.map(FileChannel.MapMode.READ_ONLY, pos, mapSize);
+            try {
+                int limit = (int) mapSize;
+                // 非最后一个窗口只处理到最后一个换行符，之后的半行留给下一个窗口
+                int processLimit = lastWindow ? limit : lastIndexOfNewline(mbb, limit) + 1;
+                if (processLimit == 0) {
+                    throw new IOException("单行长度超过窗口大小：" + windowSize + "，位置：" + pos);
+                }
+
+                int lineStart = 0;
+                while (lineStart < processLimit) {
+                    int lineEnd = IdBytesParser.indexOfNewline(mbb, lineStart, processLimit);
+                    if (lineEnd < 0) {
+                        // 最后一行（无换行符的情况）
+                        lineEnd = processLimit;
+                    }
+                    handler.onLine(mbb, lineStart, lineEnd);
+                    lineStart = lineEnd + 1;
+                }
+                pos += processLimit;
+            } finally {
+                unmap(mbb);
+            }
+        }
+    }
+
+    /**
+     * 立即解除映射，释放虚拟地址空间和页缓存引用（不支持时等待GC回收）
+     */
+    public static void unmap(MappedByteBuffer mbb) {
+        if (INVOKE_CLEANER == null) {
+            return;
+        }
+        try {
+            INVOKE_CLEANER.invoke(UNSAFE, mbb);
+        } catch (ReflectiveOperationException e) {
+            // 解除映射失败不影响正确性，交给GC回收
+        }
+    }
+
+    private static int lastIndexOfNewline(ByteBuffer buf, int limit) {
+        for (int i = limit - 1; i >= 0; i--) {
+            if (buf.get(i) == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,348 @@
+package com.good.job.interview;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * 并行测试数据生成引擎（可复用工具类）
+ * 核心逻辑：
+ * 1. 把要生成的行按线程切成连续区间，每个线程预先算出自己区间的字节数，前缀和得到各线程在文件中的起始位置
+ * 2. 各线程把数字直接写入自己的直接内存缓冲区（不经过String/DecimalFormat），满了用FileChannel按位置写入各自的文件区域
+ * 3. 支持重复率、热点倾斜（Zipf）、聚集/打散三种数据特征；每个重复行的随机数由（种子, 行号）哈希得到，
+ *    与线程数和区间划分无关，同一参数和种子在任何机器上生成的文件完全一致
+ *
+ * ID规则：第j个新ID = 起始值 + j（聚集）或 起始值 + 置换(j)（打散）；
+ * 按重复率均匀插入重复行，重复行从已生成的新ID中按均匀或Zipf分布挑选（Zipf下越早生成的ID越热）
+ */
+public class ParallelIdFileGenerator {
+    /**
+     * 重复ID的挑选分布
+     */
+    public enum KeyDistribution {
+        /** 均匀分布 */
+        UNIFORM,
+        /** Zipf分布（少量热点ID占大部分重复） */
+        ZIPF
+    }
+
+    // 每个线程的写缓冲区大小（4MB）
+    private static final int BUFFER_SIZE = 4 * 1024 * 1024;
+    // 打散ID时使用的乘法置换因子候选（大素数）
+    private static final long PERMUTATION_MULTIPLIER = 2_147_483_629L;
+    // 行号哈希的增量（黄金分割常数，与SplittableRandom相同）
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    // ID前缀（如"8888"，可为空）
+    private String prefix = "";
+    // 后缀起始值
+    private long startId;
+    // 后缀固定位数（不足补前导零），0表示不补零
+    private int suffixWidth;
+    // 重复率（0~1）
+    private double duplicateRatio;
+    // 重复ID的挑选分布
+    private KeyDistribution distribution = KeyDistribution.UNIFORM;
+    // Zipf指数（越大越倾斜）
+    private double zipfExponent = 1.0;
+    // 是否按顺序聚集生成新ID（false时在唯一ID范围内打散）
+    private boolean clustered = true;
+    // 并行线程数
+    private int threads = Runtime.getRuntime().availableProcessors();
+    // 随机种子
+    private long seed = 20240101L;
+
+    public ParallelIdFileGenerator prefix(String prefix) {
+        for (int i = 0; i < prefix.length(); i++) {
+            if (!Character.isDigit(prefix.charAt(i))) {
+                throw new IllegalArgumentException("前缀只能包含数字：" + prefix);
+            }
+        }
+        this.prefix = prefix;
+        return this;
+    }
+
+    public ParallelIdFileGenerator startId(long startId) {
+        if (startId < 0) {
+            throw new IllegalArgumentException("起始值不能为负数：" + startId);
+        }
+        this.startId = startId;
+        return this;
+    }
+
+    public ParallelIdFileGenerator suffixWidth(int suffixWidth) {
+        if (suffixWidth < 0 || suffixWidth > 19) {
+            throw new IllegalArgumentException("后缀位数必须在[0, 19]之间：" + suffixWidth);
+        }
+        this.suffixWidth = suffixWidth;
+        return this;
+    }
+
+    public ParallelIdFileGenerator duplicateRatio(double duplicateRatio) {
+        if (duplicateRatio < 0 || duplicateRatio >= 1) {
+            throw new IllegalArgumentException("重复率必须在[0, 1)之间：" + duplicateRatio);
+        }
+        this.duplicateRatio = duplicateRatio;
+        return this;
+    }
+
+    public ParallelIdFileGenerator distribution(KeyDistribution distribution, double zipfExponent) {
+        if (zipfExponent <= 0) {
+            throw new IllegalArgumentException("Zipf指数必须大于0：" + zipfExponent);
+        }
+        this.distribution = distribution;
+        this.zipfExponent = zipfExponent;
+        return this;
+    }
+
+    public ParallelIdFileGenerator clustered(boolean clustered) {
+        this.clustered = clustered;
+        return this;
+    }
+
+    public ParallelIdFileGenerator threads(int threads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("线程数必须大于0：" + threads);
+        }
+        this.threads = threads;
+        return this;
+    }
+
+    public ParallelIdFileGenerator seed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    /**
+     * 生成ID文件（每行一个ID，覆盖已存在的文件）
+     *
+     * @param outputFile 输出文件路径
+     * @param totalCount 生成的总行数
+     * @return 文件总字节数
+     */
+    public long generate(String outputFile, long totalCount) throws IOException {
+        if (totalCount <= 0) {
+            throw new IllegalArgumentException("生成数量必须大于0：" + totalCount);
+        }
+        long uniqueCount = freshBefore(totalCount);
+        if (!clustered && uniqueCount > Integer.MAX_VALUE * 2L) {
+            throw new IllegalArgumentException("打散模式最多支持" + Integer.MAX_VALUE * 2L + "个唯一ID");
+        }
+        long maxSuffix = startId + uniqueCount - 1;
+        if (suffixWidth > 0 && digitCount(maxSuffix) > suffixWidth) {
+            throw new IllegalArgumentException("后缀位数不足以容纳最大值：" + maxSuffix);
+        }
+        long multiplier = clustered ? 1 : coprimeMultiplier(uniqueCount);
+
+        int threadCount = (int) Math.min(threads, totalCount);
+        long[] lineBounds = new long[threadCount + 1];
+        for (int t = 0; t <= threadCount; t++) {
+            lineBounds[t] = totalCount / threadCount * t + Math.min(t, totalCount % threadCount);
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(threadCount);
+        try (FileChannel channel = FileChannel.open(Paths.get(outputFile),
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            // 步骤1：各线程计算自己区间的字节数（定长ID直接相乘，变长ID预演一遍）
+            List<Future<Long>> sizeFutures = new ArrayList<>();
+            for (int t = 0; t < threadCount; t++) {
+                Region region = new Region(lineBounds[t], lineBounds[t + 1], multiplier, uniqueCount);
+                sizeFutures.add(pool.submit(() -> region.run(null, 0)));
+            }
+            long[] offsets = new long[threadCount + 1];
+            for (int t = 0; t < threadCount; t++) {
+                offsets[t + 1] = offsets[t] + sizeFutures.get(t).get();
+            }
+
+            // 步骤2：各线程按位置写入互不重叠的文件区域
+            List<Future<Long>> writeFutures = new ArrayList<>();
+            for (int t = 0; t < threadCount; t++) {
+                Region region = new Region(lineBounds[t], lineBounds[t + 1], multiplier, uniqueCount);
+                long offset = offsets[t];
+                writeFutures.add(pool.submit(() -> region.run(channel, offset)));
+            }
+            for (Future<Long> future : writeFutures) {
+                future.get();
+            }
+            System.out.println("生成完成：" + totalCount + " 行，唯一ID：" + uniqueCount + " 个，文件大小：" + offsets[threadCount] + " 字节");
+            return offsets[threadCount];
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("数据生成中断：" + outputFile, e);
+        } catch (ExecutionException e) {
+            throw new IOException("数据生成失败：" + outputFile, e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * 第line行之前（不含）生成的新ID数量：重复行按重复率均匀分布，第i行为重复行当且仅当
+     * floor((i + 1) * ratio) > floor(i * ratio)，因此可以O(1)算出任意位置之前的新ID数量
+     */
+    private long freshBefore(long line) {
+        return line - (long) Math.floor(line * duplicateRatio);
+    }
+
+    private boolean isDuplicate(long line) {
+        return (long) Math.floor((line + 1) * duplicateRatio) > (long) Math.floor(line * duplicateRatio);
+    }
+
+    /**
+     * 选一个与uniqueCount互素且大于1的乘数，使 j -> (j * multiplier) mod uniqueCount 为[0, uniqueCount)上打散的置换
+     * （乘数为0不是置换，为1时输出仍是顺序的；uniqueCount不超过2时只有恒等置换）
+     */
+    private static long coprimeMultiplier(long uniqueCount) {
+        if (uniqueCount <= 2) {
+            return 1;
+        }
+        long multiplier = Math.max(2, PERMUTATION_MULTIPLIER % uniqueCount);
+        // uniqueCount - 1 与uniqueCount互素，搜索一定在它之前结束
+        while (gcd(multiplier, uniqueCount) != 1) {
+            multiplier++;
+        }
+        return multiplier;
+    }
+
+    /**
+     * 第line行的随机数：由（种子, 行号）哈希得到，与该行由哪个线程生成无关
+     */
+    private long lineRandom(long line) {
+        return mix64(mix64(seed) + (line + 1) * GOLDEN_GAMMA);
+    }
+
+    /**
+     * 64位混淆函数（Stafford variant 13，与SplittableRandom相同）
+     */
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private static long gcd(long a, long b) {
+        while (b != 0) {
+            long tmp = a % b;
+            a = b;
+            b = tmp;
+        }
+        return a;
+    }
+
+    private static int digitCount(long value) {
+        int digits = 1;
+        while (value >= 10) {
+            value /= 10;
+            digits++;
+        }
+        return digits;
+    }
+
+    /**
+     * 单个线程负责的连续行区间
+     */
+    private final class Region {
+        private final long fromLine;
+        private final long toLine;
+        private final long multiplier;
+        private final long uniqueCount;
+        private final byte[] prefixBytes = prefix.getBytes(StandardCharsets.US_ASCII);
+
+        Region(long fromLine, long toLine, long multiplier, long uniqueCount) {
+            this.fromLine = fromLine;
+            this.toLine = toLine;
+            this.multiplier = multiplier;
+            this.uniqueCount = uniqueCount;
+        }
+
+        /**
+         * 生成区间内的所有行
+         * @param channel 输出通道；为null时只计算字节数
+         * @param offset 区间在文件中的起始位置
+         * @return 区间字节数
+         */
+        long run(FileChannel channel, long offset) throws IOException {
+            if (channel == null && suffixWidth > 0) {
+                // 定长ID：无需预演
+                return (toLine - fromLine) * (prefixBytes.length + suffixWidth + 1);
+            }
+            ByteBuffer buffer = channel == null ? null : ByteBuffer.allocateDirect(BUFFER_SIZE);
+            byte[] digits = new byte[20];
+            long bytes = 0;
+            long position = offset;
+            long fresh = freshBefore(fromLine);
+            for (long line = fromLine; line < toLine; line++) {
+                long ordinal;
+                if (isDuplicate(line)) {
+                    ordinal = pickDuplicate(line, fresh);
+                } else {
+                    ordinal = fresh++;
+                }
+                long suffix = startId + (clustered ? ordinal : ordinal * multiplier % uniqueCount);
+
+                // 从低位到高位写数字，不足位数补零
+                int pos = digits.length;
+                do {
+                    digits[--pos] = (byte) ('0' + suffix % 10);
+                    suffix /= 10;
+                } while (suffix != 0);
+                while (digits.length - pos < suffixWidth) {
+                    digits[--pos] = '0';
+                }
+                int lineBytes = prefixBytes.length + digits.length - pos + 1;
+                bytes += lineBytes;
+                if (buffer == null) {
+                    continue;
+                }
+                if (buffer.remaining() < lineBytes) {
+                    position += flush(channel, buffer, position);
+                }
+                buffer.put(prefixBytes).put(digits, pos, digits.length - pos).put((byte) '\n');
+            }
+            if (buffer != null) {
+                flush(channel, buffer, position);
+            }
+            return bytes;
+        }
+
+        /**
+         * 从已生成的fresh个新ID中为第line行挑选一个作为重复ID（预演和写入两遍得到完全相同的ID）
+         */
+        private long pickDuplicate(long line, long fresh) {
+            long random = lineRandom(line);
+            if (distribution == KeyDistribution.UNIFORM) {
+                return (random >>> 1) % fresh;
+            }
+            // Zipf：按连续幂律分布的逆CDF近似抽样排名rank∈[1, fresh]，排名越小越热
+            double u = (random >>> 11) * 0x1.0p-53;
+            double rank;
+            if (Math.abs(zipfExponent - 1.0) < 1e-9) {
+                rank = Math.pow(fresh + 1, u);
+            } else {
+                double oneMinusS = 1 - zipfExponent;
+                rank = Math.pow((Math.pow(fresh + 1, oneMinusS) - 1) * u + 1, 1 / oneMinusS);
+            }
+            return Math.min(fresh - 1, Math.max(0, (long) rank - 1));
+        }
+
+        private int flush(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+            buffer.flip();
+            int written = buffer.remaining();
+            long pos = position;
+            while (buffer.hasRemaining()) {
+                pos += channel.write(buffer, pos);
+            }
+            buffer.clear();
+            return written;
+        }
+    }
+}
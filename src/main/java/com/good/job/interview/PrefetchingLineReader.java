@@ -0,0 +1,192 @@
+package com.good.job.interview;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * 异步预读按行读取工具类（可复用工具类）
+ * 核心逻辑：独立的I/O线程按块大小对齐的位置顺序读取文件，写入一组可复用的直接内存缓冲区，
+ * 解析线程处理当前块时I/O线程已在读取后面的块，解析与磁盘读取重叠进行；
+ * 顺序的定位读取让内核预读持续生效（JDK没有madvise接口，这是最接近顺序访问提示的做法），
+ * 相比MMap按需缺页，解析线程几乎不会停下来等磁盘
+ */
+public final class PrefetchingLineReader {
+    /**
+     * 默认块大小：4MB
+     */
+    public static final int DEFAULT_BLOCK_SIZE = 4 * 1024 * 1024;
+
+    /**
+     * 块和缓冲区的对齐大小（操作系统页大小）
+     */
+    public static final int BLOCK_ALIGNMENT = 4096;
+    // 缓冲区数量：1块解析中 + 其余由I/O线程提前读取
+    private static final int BUFFER_COUNT = 4;
+    // 跨块行拼接缓冲区的初始大小
+    private static final int CARRY_INITIAL_SIZE = 64 * 1024;
+
+    private PrefetchingLineReader() {
+    }
+
+    /**
+     * 使用默认块大小按行读取[start, end)区间
+     */
+    public static void readLines(FileChannel channel, long start, long end, MappedLineReader.LineHandler handler) throws IOException {
+        readLines(channel, start, end, DEFAULT_BLOCK_SIZE, handler);
+    }
+
+    /**
+     * 按行读取文件的[start, end)区间（start需位于行首）
+     * 回调收到的缓冲区在回调返回后会被复用，不能保存引用；跨块的行会先拼接到单独的缓冲区再回调
+     *
+     * @param channel   文件通道（只使用定位读取，不改变通道位置）
+     * @param start     起始位置（包含）
+     * @param end       结束位置（不包含）
+     * @param blockSize 块大小（BLOCK_ALIGNMENT的整数倍，且需大于最长的一行）
+     * @param handler   行处理回调
+     */
+    public static void readLines(FileChannel channel, long start, long end, int blockSize,
+                                 MappedLineReader.LineHandler handler) throws IOException {
+        if (blockSize <= 0 || blockSize % BLOCK_ALIGNMENT != 0) {
+            throw new IllegalArgumentException("块大小必须是" + BLOCK_ALIGNMENT + "的正整数倍：" + blockSize);
+        }
+        if (start >= end) {
+            return;
+        }
+
+        BlockingQueue<ByteBuffer> freeBuffers = new ArrayBlockingQueue<>(BUFFER_COUNT);
+        for (int i = 0; i < BUFFER_COUNT; i++) {
+            freeBuffers.add(ByteBuffer.allocateDirect(blockSize + BLOCK_ALIGNMENT).alignedSlice(BLOCK_ALIGNMENT));
+        }
+        // 多留一个位置给结束标记，I/O线程放入结束标记时不会阻塞
+        BlockingQueue<Block> readyBlocks = new ArrayBlockingQueue<>(BUFFER_COUNT + 1);
+        Thread worker = new Thread(() -> prefetch(channel, start, end, blockSize, freeBuffers, readyBlocks), "Prefetch-reader");
+        worker.setDaemon(true);
+        worker.start();
+
+        try {
+            ByteBuffer carry = ByteBuffer.allocateDirect(Math.min(CARRY_INITIAL_SIZE, blockSize));
+            while (true) {
+                Block block = readyBlocks.take();
+                if (block.error != null) {
+                    throw new IOException("预读文件失败", block.error);
+                }
+                if (block == Block.EOF) {
+                    break;
+                }
+                // 回调统一使用只读的直接缓冲区视图（与MappedLineReader映射出的类型一致），
+                // 解析代码中ByteBuffer.get的调用点只见到一种实现，JIT可以内联
+                ByteBuffer buf = block.buffer.asReadOnlyBuffer();
+                int limit = buf.limit();
+                int lineStart = 0;
+
+                // 上一块末尾的半行：拼接到本块第一个换行符为止
+                if (carry.position() > 0) {
+                    int newline = IdBytesParser.indexOfNewline(buf, 0, limit);
+                    int tailEnd = newline < 0 ? limit : newline;
+                    carry = append(carry, buf, 0, tailEnd, blockSize);
+                    if (newline < 0) {
+                        freeBuffers.put(block.buffer);
+                        continue;
+                    }
+                    handler.onLine(carry.asReadOnlyBuffer(), 0, carry.position());
+                    carry.clear();
+                    lineStart = newline + 1;
+                }
+
+                int lineEnd;
+                while ((lineEnd = IdBytesParser.indexOfNewline(buf, lineStart, limit)) >= 0) {
+                    handler.onLine(buf, lineStart, lineEnd);
+                    lineStart = lineEnd + 1;
+                }
+                if (lineStart < limit) {
+                    carry = append(carry, buf, lineStart, limit, blockSize);
+                }
+                freeBuffers.put(block.buffer);
+            }
+            // 处理最后一行（无换行符的情况）
+            if (carry.position() > 0) {
+                handler.onLine(carry.asReadOnlyBuffer(), 0, carry.position());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("等待预读数据时被中断");
+        } finally {
+            // 正常结束时I/O线程已退出；异常退出时中断它（阻塞在读取上时FileChannel会随之关闭）
+            worker.interrupt();
+        }
+    }
+
+    /**
+     * I/O线程：按块对齐的位置依次读取，第一块只读到下一个对齐边界
+     */
+    private static void prefetch(FileChannel channel, long start, long end, int blockSize,
+                                 BlockingQueue<ByteBuffer> freeBuffers, BlockingQueue<Block> readyBlocks) {
+        try {
+            long pos = start;
+            while (pos < end) {
+                ByteBuffer buffer = freeBuffers.take();
+                long blockEnd = Math.min(end, (pos / blockSize + 1) * blockSize);
+                buffer.clear();
+                buffer.limit((int) (blockEnd - pos));
+                boolean truncated = false;
+                while (buffer.hasRemaining() && !truncated) {
+                    // 文件被截断时按已读到的数据结束
+                    truncated = channel.read(buffer, pos + buffer.position()) < 0;
+                }
+                buffer.flip();
+                readyBlocks.put(new Block(buffer, null));
+                if (truncated) {
+                    break;
+                }
+                pos = blockEnd;
+            }
+            readyBlocks.put(Block.EOF);
+        } catch (InterruptedException e) {
+            // 读取方已提前结束
+        } catch (IOException e) {
+            readyBlocks.offer(new Block(null, e));
+        }
+    }
+
+    /**
+     * 把[from, to)追加到拼接缓冲区，容量不足时按2倍扩容（不超过块大小）
+     */
+    private static ByteBuffer append(ByteBuffer carry, ByteBuffer buf, int from, int to, int blockSize) throws IOException {
+        int length = to - from;
+        if (carry.remaining() < length) {
+            int required = carry.position() + length;
+            if (required > blockSize) {
+                throw new IOException("单行长度超过块大小：" + blockSize);
+            }
+            ByteBuffer larger = ByteBuffer.allocateDirect(Math.min(blockSize, Math.max(required, carry.capacity() * 2)));
+            carry.flip();
+            larger.put(carry);
+            carry = larger;
+        }
+        ByteBuffer src = buf.duplicate();
+        src.limit(to);
+        src.position(from);
+        carry.put(src);
+        return carry;
+    }
+
+    /**
+     * I/O线程读好的一块数据
+     */
+    private static final class Block {
+        static final Block EOF = new Block(null, null);
+
+        final ByteBuffer buffer;
+        final IOException error;
+
+        Block(ByteBuffer buffer, IOException error) {
+            this.buffer = buffer;
+            this.error = error;
+        }
+    }
+}
@@ -1,17 +1,35 @@
 package com.good.job.interview.chapter1;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+
 public class BitMap {
     /**
-     * 使用byte数组存储bit位
-     * 每个byte有8个bit，可存储8个数字的标记
+     * 脏页大小（long个数）：512个long = 4KB，与操作系统页大小一致
+     */
+    static final int PAGE_WORDS = 512;
+    private static final int PAGE_SHIFT = 9;
+
+    // long数组元素的原子访问句柄（并发标记时按位或CAS）
+    private static final VarHandle LONG_ARRAY = MethodHandles.arrayElementVarHandle(long[].class);
+
+    /**
+     * 使用long数组存储bit位
+     * 每个long有64个bit，可存储64个数字的标记；按long整字读写，集合运算时一次处理64个数字
      */
-    private byte[] bits;
+    private long[] words;
 
     /**
      * 位图能表示的最大数字
      */
     private long maxNum;
 
+    /**
+     * 脏页标记（每个bit对应一页），开启脏页跟踪后才分配；断点续跑时只把修改过的页刷到磁盘
+     */
+    private long[] dirtyPages;
+
     /**
      * 构造函数
      *
@@ -19,13 +37,13 @@ public class BitMap {
      */
     public BitMap(long maxNum) {
         this.maxNum = maxNum;
-        // 计算需要的byte数组大小：向上取整
-        // 例如：maxNum=40亿，需要 (40亿 / 8) + 1 个byte
-        long byteSize = (maxNum >> 3) + 1;
-        if (byteSize > Integer.MAX_VALUE) {
-            throw new IllegalArgumentException("BitMap size too large: " + byteSize);
+        // 计算需要的long数组大小：向上取整
+        // 例如：maxNum=40亿，需要 (40亿 / 64) + 1 个long
+        long wordSize = (maxNum >> 6) + 1;
+        if (wordSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("BitMap size too large: " + wordSize);
         }
-        this.bits = new byte[(int) byteSize];
+        this.words = new long[(int) wordSize];
     }
 
     /**
@@ -37,14 +55,39 @@ public class BitMap {
         if (num < 0 || num > maxNum) {
             return; // 超出范围，忽略
         }
-        // 计算该数字在byte数组中的位置
-        int byteIndex = (int) (num >> 3); // 等价于 num / 8
-        // 计算该数字在byte中的bit位置（0-7）
-        int bitIndex = (int) (num & 0x07); // 等价于 num % 8
+        // 计算该数字在long数组中的位置
+        int wordIndex = (int) (num >> 6); // 等价于 num / 64
+        // 计算该数字在long中的bit位置（0-63）：Java的long移位只取低6位，等价于 1L << (num % 64)
+        // 例如：num=3，则 1L << 3 = ...00001000
 
         // 将对应bit位置为1：使用位运算 OR
-        // 例如：bitIndex=3，则 1 << 3 = 00001000
-        bits[byteIndex] |= (1 << bitIndex);
+        words[wordIndex] |= (1L << num);
+        if (dirtyPages != null) {
+            markDirty(wordIndex);
+        }
+    }
+
+    /**
+     * 并发安全地标记数字：多个线程同时修改同一个long时用原子按位或，不会丢失彼此的修改
+     * （set为单线程批处理设计，读-改-写非原子；在线服务的实时添加使用本方法）
+     *
+     * @param num 待标记的数字
+     * @return true表示之前不存在（本次新增）
+     */
+    public boolean setIfAbsent(long num) {
+        if (num < 0 || num > maxNum) {
+            return false;
+        }
+        int wordIndex = (int) (num >> 6);
+        long mask = 1L << num;
+        long previous = (long) LONG_ARRAY.getAndBitwiseOr(words, wordIndex, mask);
+        if ((previous & mask) != 0) {
+            return false;
+        }
+        if (dirtyPages != null) {
+            LONG_ARRAY.getAndBitwiseOr(dirtyPages, wordIndex >> (PAGE_SHIFT + 6), 1L << (wordIndex >> PAGE_SHIFT));
+        }
+        return true;
     }
 
     /**
@@ -57,13 +100,12 @@ public class BitMap {
         if (num < 0 || num > maxNum) {
             return false;
         }
-        int byteIndex = (int) (num >> 3);
-        int bitIndex = (int) (num & 0x07);
+        int wordIndex = (int) (num >> 6);
 
         // 检查对应bit位是否为1：使用位运算 AND
-        // 例如：bits[byteIndex] = 00001000, bitIndex=3
-        // 则 (bits[byteIndex] & (1 << 3)) != 0，返回true
-        return (bits[byteIndex] & (1 << bitIndex)) != 0;
+        // 例如：words[wordIndex] = ...00001000, num % 64 = 3
+        // 则 (words[wordIndex] & (1L << 3)) != 0，返回true
+        return (words[wordIndex] & (1L << num)) != 0;
     }
 
     /**
@@ -75,19 +117,181 @@ public class BitMap {
         if (num < 0 || num > maxNum) {
             return;
         }
-        int byteIndex = (int) (num >> 3);
-        int bitIndex = (int) (num & 0x07);
+        int wordIndex = (int) (num >> 6);
 
         // 将对应bit位置为0：使用位运算 AND NOT
-        // 例如：bits[byteIndex] = 00001111, bitIndex=3
-        // 则 bits[byteIndex] & ~(1 << 3) = 00001111 & 11110111 = 00000111
-        bits[byteIndex] &= ~(1 << bitIndex);
+        // 例如：words[wordIndex] = ...00001111, num % 64 = 3
+        // 则 words[wordIndex] & ~(1L << 3) = ...00001111 & ...11110111 = ...00000111
+        words[wordIndex] &= ~(1L << num);
+        if (dirtyPages != null) {
+            markDirty(wordIndex);
+        }
+    }
+
+    /**
+     * 清除所有标记（复用同一个位图处理多批数据，避免重复分配内存）
+     */
+    public void clearAll() {
+        Arrays.fill(words, 0L);
+        markAllDirty();
+    }
+
+    /**
+     * 交集：只保留两个位图中都存在的数字（结果写回当前位图）
+     */
+    public void and(BitMap other) {
+        int common = Math.min(words.length, other.words.length);
+        for (int i = 0; i < common; i++) {
+            words[i] &= other.words[i];
+        }
+        // 对方位图范围之外的部分交集为空
+        for (int i = common; i < words.length; i++) {
+            words[i] = 0;
+        }
+        markAllDirty();
+    }
+
+    /**
+     * 并集：合并另一个位图中存在的数字（超出当前位图范围的部分忽略）
+     */
+    public void or(BitMap other) {
+        int common = Math.min(words.length, other.words.length);
+        for (int i = 0; i < common; i++) {
+            words[i] |= other.words[i];
+        }
+        trimTail();
+        markAllDirty();
+    }
+
+    /**
+     * 差集：去掉另一个位图中存在的数字
+     */
+    public void andNot(BitMap other) {
+        int common = Math.min(words.length, other.words.length);
+        for (int i = 0; i < common; i++) {
+            words[i] &= ~other.words[i];
+        }
+        markAllDirty();
+    }
+
+    /**
+     * 统计位图中存在的数字个数（按long整字计算bit数）
+     */
+    public long cardinality() {
+        long count = 0;
+        for (long word : words) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /**
+     * 查找大于等于from的第一个存在的数字，用于按从小到大顺序遍历位图
+     *
+     * @return 找到的数字；不存在时返回-1
+     */
+    public long nextSetBit(long from) {
+        if (from < 0) {
+            from = 0;
+        }
+        if (from > maxNum) {
+            return -1;
+        }
+        int wordIndex = (int) (from >> 6);
+        // 屏蔽当前long中小于from的bit
+        long word = words[wordIndex] & (-1L << from);
+        while (true) {
+            if (word != 0) {
+                return ((long) wordIndex << 6) + Long.numberOfTrailingZeros(word);
+            }
+            if (++wordIndex == words.length) {
+                return -1;
+            }
+            word = words[wordIndex];
+        }
     }
 
     /**
      * 获取当前位图占用的内存大小（字节）
      */
     public long getMemorySize() {
-        return bits.length;
+        return (long) words.length * Long.BYTES;
+    }
+
+    /**
+     * 开启脏页跟踪：之后每次修改都会标记所在的页，配合MappedBitMapFile增量刷盘
+     */
+    public void enableDirtyTracking() {
+        if (dirtyPages == null) {
+            int pageCount = (words.length + PAGE_WORDS - 1) >> PAGE_SHIFT;
+            dirtyPages = new long[(pageCount >> 6) + 1];
+            // 开启前的修改无从得知，全部视为脏页
+            markAllDirty();
+        }
+    }
+
+    /**
+     * 查找大于等于from的第一个脏页
+     *
+     * @return 脏页编号；不存在或未开启脏页跟踪时返回-1
+     */
+    int nextDirtyPage(int from) {
+        if (dirtyPages == null) {
+            return -1;
+        }
+        int index = from >> 6;
+        if (index >= dirtyPages.length) {
+            return -1;
+        }
+        long word = dirtyPages[index] & (-1L << from);
+        while (true) {
+            if (word != 0) {
+                return (index << 6) + Long.numberOfTrailingZeros(word);
+            }
+            if (++index == dirtyPages.length) {
+                return -1;
+            }
+            word = dirtyPages[index];
+        }
+    }
+
+    /**
+     * 清除所有脏页标记（刷盘完成后调用）
+     */
+    void clearDirtyPages() {
+        if (dirtyPages != null) {
+            Arrays.fill(dirtyPages, 0L);
+        }
+    }
+
+    /**
+     * 底层long数组（供MappedBitMapFile按页读写）
+     */
+    long[] words() {
+        return words;
+    }
+
+    private void markDirty(int wordIndex) {
+        // wordIndex >> 9 为页号，页号 >> 6 为脏页数组下标；long移位只取低6位
+        dirtyPages[wordIndex >> (PAGE_SHIFT + 6)] |= 1L << (wordIndex >> PAGE_SHIFT);
+    }
+
+    private void markAllDirty() {
+        if (dirtyPages != null) {
+            int pageCount = (words.length + PAGE_WORDS - 1) >> PAGE_SHIFT;
+            for (int page = 0; page < pageCount; page++) {
+                dirtyPages[page >> 6] |= 1L << page;
+            }
+        }
+    }
+
+    /**
+     * 清掉最后一个long中超过maxNum的bit（合并不同范围的位图时可能带入）
+     */
+    private void trimTail() {
+        int lastBits = (int) (maxNum & 0x3F) + 1;
+        if (lastBits < 64) {
+            words[words.length - 1] &= (1L << lastBits) - 1;
+        }
     }
 }
@@ -0,0 +1,125 @@
+package com.good.job.interview.chapter1;
+
+import com.good.job.interview.MappedLineReader;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * 位图检查点文件：把BitMap映射到磁盘文件，用于长时间任务的断点续跑
+ * 核心逻辑：文件按1GB分段映射，刷盘时只把BitMap标记的脏页（4KB）拷贝到映射区，再由force()写回磁盘，
+ * 两次检查点之间没有修改过的页不会产生任何IO；恢复时整体读回BitMap
+ */
+public class MappedBitMapFile implements AutoCloseable {
+    // 单个映射分段大小（1GB，页大小的整数倍）
+    private static final long SEGMENT_BYTES = 1L << 30;
+    private static final int SEGMENT_WORDS = (int) (SEGMENT_BYTES / Long.BYTES);
+
+    private final BitMap bitMap;
+    private final RandomAccessFile raf;
+    private final MappedByteBuffer[] segments;
+    private final LongBuffer[] views;
+    // 打开前文件是否已存在且大小与位图一致（可用于恢复）
+    private final boolean restorable;
+
+    /**
+     * 打开（不存在时创建）位图检查点文件，并开启位图的脏页跟踪
+     *
+     * @param file 检查点文件
+     * @param bitMap 需要持久化的位图
+     */
+    public MappedBitMapFile(File file, BitMap bitMap) throws IOException {
+        this.bitMap = bitMap;
+        long fileSize = bitMap.getMemorySize();
+        this.restorable = file.exists() && file.length() == fileSize;
+        this.raf = new RandomAccessFile(file, "rw");
+        raf.setLength(fileSize);
+
+        int segmentCount = (int) ((fileSize + SEGMENT_BYTES - 1) / SEGMENT_BYTES);
+        this.segments = new MappedByteBuffer[segmentCount];
+        this.views = new LongBuffer[segmentCount];
+        FileChannel channel = raf.getChannel();
+        for (int i = 0; i < segmentCount; i++) {
+            long offset = i * SEGMENT_BYTES;
+            segments[i] = channel.map(FileChannel.MapMode.READ_WRITE, offset, Math.min(SEGMENT_BYTES, fileSize - offset));
+            views[i] = segments[i].order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+        }
+        bitMap.enableDirtyTracking();
+    }
+
+    /**
+     * 打开已有的位图文件并恢复位图：文件不存在或大小与位图不一致时直接抛出异常，不会创建或改变文件大小
+     * （用于加载外部提供的位图文件，避免截断或扩展用户的文件）
+     *
+     * @param file 已有的位图文件
+     * @param bitMap 用于恢复的位图（大小需与文件一致）
+     */
+    public static MappedBitMapFile openExisting(File file, BitMap bitMap) throws IOException {
+        if (!file.isFile()) {
+            throw new FileNotFoundException("位图文件不存在：" + file);
+        }
+        if (file.length() != bitMap.getMemorySize()) {
+            throw new IOException("位图文件大小不一致：" + file + "，文件大小：" + file.length()
+                    + "，期望大小：" + bitMap.getMemorySize());
+        }
+        MappedBitMapFile mapped = new MappedBitMapFile(file, bitMap);
+        mapped.restore();
+        return mapped;
+    }
+
+    /**
+     * 从检查点文件恢复位图（文件是新建的或大小不一致时不恢复）
+     *
+     * @return true表示已恢复
+     */
+    public boolean restore() {
+        if (!restorable) {
+            return false;
+        }
+        long[] words = bitMap.words();
+        for (int i = 0; i < views.length; i++) {
+            LongBuffer view = views[i];
+            view.position(0);
+            view.get(words, i * SEGMENT_WORDS, view.capacity());
+        }
+        bitMap.clearDirtyPages();
+        return true;
+    }
+
+    /**
+     * 增量刷盘：只写入上次刷盘以来修改过的页
+     *
+     * @return 写入的页数
+     */
+    public int flush() {
+        long[] words = bitMap.words();
+        int pageCount = 0;
+        for (int page = bitMap.nextDirtyPage(0); page >= 0; page = bitMap.nextDirtyPage(page + 1)) {
+            int wordIndex = page * BitMap.PAGE_WORDS;
+            int length = Math.min(BitMap.PAGE_WORDS, words.length - wordIndex);
+            LongBuffer view = views[wordIndex / SEGMENT_WORDS];
+            view.position(wordIndex % SEGMENT_WORDS);
+            view.put(words, wordIndex, length);
+            pageCount++;
+        }
+        for (MappedByteBuffer segment : segments) {
+            segment.force();
+        }
+        bitMap.clearDirtyPages();
+        return pageCount;
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (MappedByteBuffer segment : segments) {
+            MappedLineReader.unmap(segment);
+        }
+        raf.close();
+    }
+}
@@ -1,6 +1,22 @@
 package com.good.job.interview.chapter1;
 
+import com.good.job.interview.CompressedIO;
+import com.good.job.interview.IdBytesParser;
+import com.good.job.interview.JobCheckpoint;
+import com.good.job.interview.chapter2.TopKCandidateHeap;
+import com.good.job.interview.chapter2.TopKFrequencyCounter;
+
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * 40亿QQ号去重解决方案
@@ -11,9 +27,54 @@ import java.io.*;
 public class QQNumberDeduplicator {
 
     /**
-     * QQ号的最大值（32位整数最大值）
+     * QQ号的最大值（32位整数最大值；集合运算、成员查询服务等按同一范围创建位图）
+     */
+    public static final long MAX_QQ_NUM = 2147483647L; // 2^31 - 1
+
+    /**
+     * QQ号的二进制位数（低内存分桶模式按高位分桶）
+     */
+    private static final int QQ_NUM_BITS = 31;
+
+    /**
+     * 低内存分桶模式下每个桶文件写缓冲区的大小范围（4KB-64KB，按 缓冲区内存 / 桶数量 取值）
+     */
+    private static final int MIN_BUCKET_BUFFER_SIZE = 4 * 1024;
+    private static final int BUCKET_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * 低内存分桶模式下读取桶文件的缓冲区大小上限（1MB）
+     */
+    private static final int BUCKET_READ_BUFFER_SIZE = 1024 * 1024;
+
+    /**
+     * 低内存分桶模式单轮最多同时写入的桶文件数（需要更多桶时分多轮，避免缓冲区内存和文件句柄随桶数量增长）
+     */
+    private static final int MAX_BUCKET_FAN_OUT = 256;
+
+    /**
+     * 低内存分桶模式允许的最小内存上限（1MB），再小时分桶轮数和小文件数量过多
+     */
+    private static final long MIN_LOW_MEMORY_LIMIT = 1024 * 1024;
+
+    /**
+     * 断点续跑模式下保存检查点的间隔（每处理1亿行 / 每输出1亿个QQ号）
      */
-    private static final long MAX_QQ_NUM = 2147483647L; // 2^31 - 1
+    private static final long CHECKPOINT_INTERVAL = 100000000L;
+
+    // 断点续跑模式的检查点文件名（进度）和位图文件名
+    private static final String CHECKPOINT_FILE_NAME = "qq_dedup.checkpoint";
+    private static final String CHECKPOINT_BITMAP_FILE_NAME = "qq_dedup.bitmap";
+
+    // 检查点中的进度字段
+    private static final String KEY_PHASE = "phase";
+    private static final String KEY_INPUT_OFFSET = "input.offset";
+    private static final String KEY_INPUT_LINES = "input.lines";
+    private static final String KEY_NEXT_QQ = "output.next";
+    private static final String KEY_OUTPUT_BYTES = "output.bytes";
+    private static final String KEY_OUTPUT_COUNT = "output.count";
+    private static final long PHASE_MARK = 1;
+    private static final long PHASE_OUTPUT = 2;
 
     /**
      * 使用BitMap进行去重
@@ -30,8 +91,7 @@ public class QQNumberDeduplicator {
 
         // 步骤2：第一遍遍历，标记所有出现的QQ号
         System.out.println("开始第一遍遍历，标记QQ号...");
-        try (BufferedReader reader = new BufferedReader(
-                new FileReader(inputFile))) {
+        try (BufferedReader reader = openReader(inputFile)) {
             String line;
             long count = 0;
             while ((line = reader.readLine()) != null) {
@@ -47,10 +107,8 @@ public class QQNumberDeduplicator {
 
         // 步骤3：第二遍遍历，输出去重后的QQ号
         System.out.println("开始第二遍遍历，输出去重后的QQ号...");
-        try (BufferedReader reader = new BufferedReader(
-                new FileReader(inputFile));
-             BufferedWriter writer = new BufferedWriter(
-                     new FileWriter(outputFile))) {
+        try (BufferedReader reader = openReader(inputFile);
+             BufferedWriter writer = openWriter(outputFile)) {
 
             String line;
             long outputCount = 0;
@@ -79,7 +137,7 @@ public class QQNumberDeduplicator {
         BitMap bitMap = new BitMap(MAX_QQ_NUM);
 
         // 第一遍：标记所有出现的QQ号
-        try (BufferedReader reader = new BufferedReader(new FileReader(inputFile))) {
+        try (BufferedReader reader = openReader(inputFile)) {
             String line;
             while ((line = reader.readLine()) != null) {
                 bitMap.set(Long.parseLong(line.trim()));
@@ -89,8 +147,8 @@ public class QQNumberDeduplicator {
         // 第二遍：输出去重结果，使用第二个BitMap记录已输出的QQ号
         BitMap outputBitMap = new BitMap(MAX_QQ_NUM); // 额外512MB，总计约1GB
 
-        try (BufferedReader reader = new BufferedReader(new FileReader(inputFile));
-             BufferedWriter writer = new BufferedWriter(new FileWriter(outputFile))) {
+        try (BufferedReader reader = openReader(inputFile);
+             BufferedWriter writer = openWriter(outputFile)) {
 
             String line;
             long outputCount = 0;
@@ -107,4 +165,429 @@ public class QQNumberDeduplicator {
             System.out.println("去重完成，输出了：" + outputCount + " 个唯一QQ号");
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * 可断点续跑版本：适用于数百亿行、需要运行数小时的输入
+     *
+     * 说明：第一遍标记QQ号，每处理1亿行保存一次检查点（输入偏移量、已处理行数，位图只把修改过的页增量刷到映射文件）；
+     * 第二遍不再重读输入，直接按位图从小到大输出，每输出1亿个保存一次（下一个QQ号、输出文件长度）。
+     * 进程崩溃或被抢占后，用相同参数重新调用即从最近的检查点继续；输出按QQ号从小到大排列
+     *
+     * 一致性：先刷位图再保存进度，崩溃时位图可能比进度新，重放的行只会重复置位，结果不变
+     *
+     * @param inputFile 输入的QQ号文件（每行一个QQ号）
+     * @param outputFile 输出去重后的QQ号文件
+     * @param checkpointDir 检查点目录（保存进度和位图文件，完成后删除）
+     * @return 唯一QQ号数量
+     */
+    public long deduplicateResumable(String inputFile, String outputFile, String checkpointDir) throws IOException {
+        return deduplicateResumable(inputFile, outputFile, checkpointDir, null);
+    }
+
+    /**
+     * 可断点续跑版本，完成后保留完整的位图文件（可由成员查询服务直接映射加载）
+     *
+     * 说明：检查点目录中的位图在任务完成前只包含部分QQ号；全部完成并删除检查点后，才把位图移动到bitmapOutputFile
+     *
+     * @param inputFile 输入的QQ号文件（每行一个QQ号）
+     * @param outputFile 输出去重后的QQ号文件
+     * @param checkpointDir 检查点目录（保存进度和位图文件，完成后删除）
+     * @param bitmapOutputFile 完整位图的保存路径（为null时与检查点一起删除）
+     * @return 唯一QQ号数量
+     */
+    public long deduplicateResumable(String inputFile, String outputFile, String checkpointDir,
+                                     String bitmapOutputFile) throws IOException {
+        File dir = new File(checkpointDir);
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new IOException("创建检查点目录失败：" + checkpointDir);
+        }
+        File bitmapFile = new File(dir, CHECKPOINT_BITMAP_FILE_NAME);
+        JobCheckpoint checkpoint = new JobCheckpoint(new File(dir, CHECKPOINT_FILE_NAME));
+        BitMap bitMap = new BitMap(MAX_QQ_NUM);
+        long outputCount;
+        try (MappedBitMapFile mappedBitMap = new MappedBitMapFile(bitmapFile, bitMap)) {
+            if (checkpoint.isResumed() && !mappedBitMap.restore()) {
+                throw new IOException("检查点位图文件缺失或大小不一致：" + bitmapFile);
+            }
+
+            // 步骤1：第一遍遍历，标记所有出现的QQ号（从检查点记录的偏移量继续）
+            if (checkpoint.getLong(KEY_PHASE, PHASE_MARK) == PHASE_MARK) {
+                long startOffset = checkpoint.getLong(KEY_INPUT_OFFSET, 0);
+                AtomicLong offset = new AtomicLong(startOffset);
+                AtomicLong lines = new AtomicLong(checkpoint.getLong(KEY_INPUT_LINES, 0));
+                System.out.println(startOffset == 0 ? "开始第一遍遍历，标记QQ号..."
+                        : "从检查点继续第一遍遍历：偏移量：" + startOffset + "，已处理：" + lines.get() + " 行");
+                CompressedIO.readLines(new File(inputFile), startOffset, (buf, start, end) -> {
+                    // 下一行的起始偏移量（本行内容 + 换行符）
+                    offset.addAndGet(end - start + 1);
+                    long qqNum = IdBytesParser.parseLong(buf, start, end);
+                    if (qqNum != IdBytesParser.EMPTY) {
+                        bitMap.set(qqNum);
+                    }
+                    if (lines.incrementAndGet() % CHECKPOINT_INTERVAL == 0) {
+                        int pages = mappedBitMap.flush();
+                        checkpoint.setLong(KEY_INPUT_OFFSET, offset.get());
+                        checkpoint.setLong(KEY_INPUT_LINES, lines.get());
+                        checkpoint.save();
+                        System.out.println("已处理：" + lines.get() + " 行，保存检查点，位图刷盘：" + pages + " 页");
+                    }
+                });
+                mappedBitMap.flush();
+                checkpoint.setLong(KEY_PHASE, PHASE_OUTPUT);
+                checkpoint.setLong(KEY_INPUT_LINES, lines.get());
+                checkpoint.save();
+                System.out.println("第一遍遍历完成，共处理：" + lines.get() + " 行");
+            }
+
+            // 步骤2：按位图从小到大输出，先截掉上次检查点之后写入的部分
+            long nextQQ = checkpoint.getLong(KEY_NEXT_QQ, 0);
+            long outputBytes = checkpoint.getLong(KEY_OUTPUT_BYTES, 0);
+            outputCount = checkpoint.getLong(KEY_OUTPUT_COUNT, 0);
+            System.out.println(nextQQ == 0 ? "开始输出去重后的QQ号..."
+                    : "从检查点继续输出：已输出：" + outputCount + " 个QQ号");
+            try (RandomAccessFile output = new RandomAccessFile(outputFile, "rw")) {
+                output.setLength(outputBytes);
+            }
+            BufferedWriter writer = openWriter(outputFile, true);
+            try {
+                for (long qqNum = bitMap.nextSetBit(nextQQ); qqNum >= 0; qqNum = bitMap.nextSetBit(qqNum + 1)) {
+                    writer.write(Long.toString(qqNum));
+                    writer.newLine();
+                    if (++outputCount % CHECKPOINT_INTERVAL == 0) {
+                        // 关闭输出流（gzip输出会结束当前压缩成员），记录文件长度后追加打开
+                        writer.close();
+                        checkpoint.setLong(KEY_NEXT_QQ, qqNum + 1);
+                        checkpoint.setLong(KEY_OUTPUT_BYTES, new File(outputFile).length());
+                        checkpoint.setLong(KEY_OUTPUT_COUNT, outputCount);
+                        checkpoint.save();
+                        writer = openWriter(outputFile, true);
+                    }
+                }
+            } finally {
+                writer.close();
+            }
+        }
+
+        // 步骤3：全部完成，先删除检查点，再保留或删除位图（位图文件只会在任务完成后出现在保存路径）
+        checkpoint.delete();
+        if (bitmapOutputFile != null) {
+            Files.move(bitmapFile.toPath(), new File(bitmapOutputFile).toPath(), StandardCopyOption.REPLACE_EXISTING);
+            System.out.println("完整位图已保存：" + bitmapOutputFile);
+        } else {
+            Files.deleteIfExists(bitmapFile.toPath());
+        }
+        System.out.println("去重完成，输出了：" + outputCount + " 个唯一QQ号");
+        return outputCount;
+    }
+
+    /**
+     * 位图文件所在目录是否还有未完成的断点续跑去重任务（有检查点时目录中的位图只包含部分QQ号，不能当作完整集合使用）
+     */
+    public static boolean hasPendingCheckpoint(File bitmapFile) {
+        return new File(bitmapFile.getAbsoluteFile().getParentFile(), CHECKPOINT_FILE_NAME).exists();
+    }
+
+    /**
+     * 低内存版本：按QQ号高位分桶，每个桶只用覆盖自身子区间的小位图
+     *
+     * 说明：第一遍把QQ号按高位写入二进制桶文件（每个4字节），再逐个桶用小位图去重并输出，
+     * 代价是多一次顺序写和一次顺序读。内存上限的一半给位图，四分之一给按行读取输入文件（按此换算读取的块大小），
+     * 其余给读取桶文件的缓冲区和分桶写缓冲区，各部分分别划分，位图、读取缓冲区和写缓冲区之和不超过上限
+     * （如128MB堆内存的节点配置32MB：位图16MB，输入按1.6MB的块读取，16个桶）；
+     * 单轮最多同时写入MAX_BUCKET_FAN_OUT个桶，需要更多桶时把过大的桶再按下一段高位分桶（多轮）。
+     * 输出按QQ号从小到大排列（不再保持原始出现顺序）
+     *
+     * @param inputFile 输入的QQ号文件（每行一个QQ号）
+     * @param outputFile 输出去重后的QQ号文件
+     * @param memoryLimit 位图、读取缓冲区和分桶写缓冲区的内存上限（字节，不小于1MB；不含JVM对象和文件句柄等少量固定开销）
+     * @return 唯一QQ号数量
+     */
+    public long deduplicateLowMemory(String inputFile, String outputFile, long memoryLimit) throws IOException {
+        if (memoryLimit < MIN_LOW_MEMORY_LIMIT) {
+            throw new IllegalArgumentException("内存上限不能小于" + MIN_LOW_MEMORY_LIMIT / 1024 + "KB：" + memoryLimit);
+        }
+        // 步骤1：划分内存：位图不超过一半，按行读取输入文件不超过四分之一，其余给桶文件读缓冲区和分桶写缓冲区
+        long bitmapLimit = memoryLimit / 2;
+        int inputBlockSize = CompressedIO.blockSizeFor(memoryLimit / 4);
+        long inputReadMemory = CompressedIO.readMemory(inputBlockSize);
+        int readBufferSize = (int) Math.min(BUCKET_READ_BUFFER_SIZE, memoryLimit / 16);
+        long bucketBufferLimit = memoryLimit - bitmapLimit - inputReadMemory - readBufferSize;
+        int rangeBits = QQ_NUM_BITS;
+        while ((1L << rangeBits >> 3) > bitmapLimit) {
+            rangeBits--;
+        }
+        // 单轮桶数量：不超过MAX_BUCKET_FAN_OUT，且每个桶至少有MIN_BUCKET_BUFFER_SIZE的写缓冲区
+        int maxFanOutBits = 0;
+        while ((2L << maxFanOutBits) <= MAX_BUCKET_FAN_OUT
+                && (2L << maxFanOutBits) * MIN_BUCKET_BUFFER_SIZE <= bucketBufferLimit) {
+            maxFanOutBits++;
+        }
+        System.out.println("低内存分桶去重：桶数量：" + (1 << (QQ_NUM_BITS - rangeBits))
+                + "，单桶位图：" + (1L << rangeBits >> 3) / 1024 + "KB，单轮最多：" + (1 << maxFanOutBits) + " 个桶"
+                + "，输入读取块：" + inputBlockSize / 1024 + "KB");
+
+        File outputDir = new File(outputFile).getAbsoluteFile().getParentFile();
+        Path bucketDir = Files.createTempDirectory(outputDir.toPath(), "qq_buckets_");
+        try {
+            BucketContext context = new BucketContext(bucketDir, rangeBits, maxFanOutBits, bucketBufferLimit,
+                    ByteBuffer.allocateDirect(readBufferSize));
+
+            // 步骤2：第一遍遍历，按高位把QQ号写入桶文件
+            System.out.println("开始第一遍遍历，QQ号分桶...");
+            int fanOutBits = Math.min(QQ_NUM_BITS - rangeBits, maxFanOutBits);
+            int subBits = QQ_NUM_BITS - fanOutBits;
+            BucketWriter bucketWriter = new BucketWriter(context, 0, subBits, fanOutBits);
+            AtomicLong count = new AtomicLong(0);
+            try {
+                CompressedIO.readLines(new File(inputFile), 0, inputBlockSize, (buf, start, end) -> {
+                    long qqNum = IdBytesParser.parseLong(buf, start, end);
+                    if (qqNum < 0 || qqNum > MAX_QQ_NUM) {
+                        return; // 空行或超出范围，忽略（与BitMap.set的处理一致）
+                    }
+                    bucketWriter.write((int) qqNum);
+                    if (count.incrementAndGet() % 100000000 == 0) {
+                        System.out.println("已分桶：" + count.get() + " 个QQ号");
+                    }
+                });
+                bucketWriter.flush();
+            } finally {
+                bucketWriter.close();
+            }
+            System.out.println("分桶完成，共处理：" + count.get() + " 个QQ号");
+
+            // 步骤3：按桶顺序逐个去重输出（桶内按位图顺序，整体有序），过大的桶先再分桶
+            System.out.println("开始逐桶去重...");
+            long outputCount = 0;
+            try (BufferedWriter writer = openWriter(outputFile)) {
+                for (int bucket = 0; bucket < bucketWriter.files.length; bucket++) {
+                    outputCount += dedupBucket(context, bucketWriter.files[bucket], (long) bucket << subBits, subBits, writer);
+                }
+            }
+            System.out.println("去重完成，输出了：" + outputCount + " 个唯一QQ号");
+            return outputCount;
+        } finally {
+            // 异常退出时清理剩余的桶文件
+            File[] leftovers = bucketDir.toFile().listFiles();
+            if (leftovers != null) {
+                for (File leftover : leftovers) {
+                    Files.deleteIfExists(leftover.toPath());
+                }
+            }
+            Files.deleteIfExists(bucketDir);
+        }
+    }
+
+    /**
+     * 对一个桶文件去重并输出：桶的范围不超过位图时直接用位图去重，否则按下一段高位再分桶后逐个处理
+     *
+     * @param bucketFile 桶文件（处理后删除）
+     * @param base 桶内QQ号的起始值
+     * @param bits 桶覆盖的范围位数（桶内QQ号为 [base, base + 2^bits)）
+     * @return 输出的唯一QQ号数量
+     */
+    private long dedupBucket(BucketContext context, Path bucketFile, long base, int bits, BufferedWriter writer) throws IOException {
+        if (bits <= context.rangeBits) {
+            BitMap bitMap = context.bitMap();
+            bitMap.clearAll();
+            readBucket(context, bucketFile, qqNum -> bitMap.set(qqNum - base));
+            Files.delete(bucketFile);
+            long outputCount = 0;
+            for (long offset = bitMap.nextSetBit(0); offset >= 0; offset = bitMap.nextSetBit(offset + 1)) {
+                writer.write(Long.toString(base + offset));
+                writer.newLine();
+                outputCount++;
+            }
+            return outputCount;
+        }
+
+        // 桶仍然过大：按下一段高位再分桶（写缓冲区与位图各占内存上限的一半，可以同时存在）
+        int fanOutBits = Math.min(bits - context.rangeBits, context.maxFanOutBits);
+        int subBits = bits - fanOutBits;
+        BucketWriter bucketWriter = new BucketWriter(context, base, subBits, fanOutBits);
+        try {
+            readBucket(context, bucketFile, bucketWriter::write);
+            bucketWriter.flush();
+        } finally {
+            bucketWriter.close();
+        }
+        Files.delete(bucketFile);
+
+        long outputCount = 0;
+        for (int bucket = 0; bucket < bucketWriter.files.length; bucket++) {
+            outputCount += dedupBucket(context, bucketWriter.files[bucket], base + ((long) bucket << subBits), subBits, writer);
+        }
+        return outputCount;
+    }
+
+    /**
+     * 顺序读取桶文件中的QQ号（每个4字节）
+     */
+    private static void readBucket(BucketContext context, Path bucketFile, QQNumConsumer consumer) throws IOException {
+        ByteBuffer readBuffer = context.readBuffer;
+        try (FileChannel channel = FileChannel.open(bucketFile, StandardOpenOption.READ)) {
+            readBuffer.clear();
+            while (channel.read(readBuffer) >= 0) {
+                readBuffer.flip();
+                while (readBuffer.remaining() >= Integer.BYTES) {
+                    consumer.accept(readBuffer.getInt());
+                }
+                readBuffer.compact();
+            }
+        }
+    }
+
+    private interface QQNumConsumer {
+        void accept(int qqNum) throws IOException;
+    }
+
+    /**
+     * 低内存分桶模式的共享参数和可复用内存（读缓冲区、按需分配的位图）
+     */
+    private static final class BucketContext {
+        final Path bucketDir;
+        // 单桶位图覆盖的范围位数
+        final int rangeBits;
+        // 单轮最多分出的桶数量（位数）
+        final int maxFanOutBits;
+        // 一轮分桶所有写缓冲区的内存上限
+        final long bucketBufferLimit;
+        final ByteBuffer readBuffer;
+        private BitMap bitMap;
+        private int nextFileId;
+
+        BucketContext(Path bucketDir, int rangeBits, int maxFanOutBits, long bucketBufferLimit, ByteBuffer readBuffer) {
+            this.bucketDir = bucketDir;
+            this.rangeBits = rangeBits;
+            this.maxFanOutBits = maxFanOutBits;
+            this.bucketBufferLimit = bucketBufferLimit;
+            this.readBuffer = readBuffer;
+        }
+
+        /**
+         * 第一次用到时才分配位图（此前的分桶阶段只占用写缓冲区）
+         */
+        BitMap bitMap() {
+            if (bitMap == null) {
+                bitMap = new BitMap((1L << rangeBits) - 1);
+            }
+            return bitMap;
+        }
+
+        Path newBucketFile() {
+            return bucketDir.resolve("bucket_" + nextFileId++ + ".bin");
+        }
+    }
+
+    /**
+     * 一轮分桶的写入器：按 (QQ号 - base) 的高位把QQ号写入2^fanOutBits个桶文件，
+     * 每个桶的写缓冲区为 缓冲区内存上限 / 桶数量（4KB-64KB）
+     */
+    private static final class BucketWriter {
+        final Path[] files;
+        private final FileChannel[] channels;
+        private final ByteBuffer[] buffers;
+        private final long base;
+        private final int subBits;
+
+        BucketWriter(BucketContext context, long base, int subBits, int fanOutBits) throws IOException {
+            int bucketCount = 1 << fanOutBits;
+            int bufferSize = (int) Math.max(MIN_BUCKET_BUFFER_SIZE,
+                    Math.min(BUCKET_BUFFER_SIZE, context.bucketBufferLimit / bucketCount));
+            bufferSize -= bufferSize % Integer.BYTES;
+            this.files = new Path[bucketCount];
+            this.channels = new FileChannel[bucketCount];
+            this.buffers = new ByteBuffer[bucketCount];
+            this.base = base;
+            this.subBits = subBits;
+            try {
+                for (int i = 0; i < bucketCount; i++) {
+                    files[i] = context.newBucketFile();
+                    channels[i] = FileChannel.open(files[i], StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                    buffers[i] = ByteBuffer.allocateDirect(bufferSize);
+                }
+            } catch (IOException e) {
+                close();
+                throw e;
+            }
+        }
+
+        void write(int qqNum) throws IOException {
+            int bucket = (int) ((qqNum - base) >>> subBits);
+            ByteBuffer buffer = buffers[bucket];
+            if (!buffer.hasRemaining()) {
+                flushBucket(channels[bucket], buffer);
+            }
+            buffer.putInt(qqNum);
+        }
+
+        void flush() throws IOException {
+            for (int i = 0; i < channels.length; i++) {
+                flushBucket(channels[i], buffers[i]);
+            }
+        }
+
+        /**
+         * 关闭桶文件并释放写缓冲区的引用（递归处理子桶时上一轮的缓冲区可以被回收）
+         */
+        void close() throws IOException {
+            for (FileChannel channel : channels) {
+                if (channel != null) {
+                    channel.close();
+                }
+            }
+            Arrays.fill(buffers, null);
+        }
+    }
+
+    private static void flushBucket(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * 打开QQ号文件的字符读取流（gzip压缩文件自动解压）
+     */
+    private static BufferedReader openReader(String inputFile) throws IOException {
+        return new BufferedReader(new InputStreamReader(CompressedIO.openInput(new File(inputFile)), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 打开结果文件的字符写入流（文件名以 .gz 结尾时gzip压缩写入）
+     */
+    private static BufferedWriter openWriter(String outputFile) throws IOException {
+        return openWriter(outputFile, false);
+    }
+
+    private static BufferedWriter openWriter(String outputFile, boolean append) throws IOException {
+        return new BufferedWriter(new OutputStreamWriter(CompressedIO.openOutput(new File(outputFile), append), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 高频模式：统计出现次数最多的K个QQ号（用于识别机器人、热点用户缓存）
+     *
+     * 说明：一遍扫描，Count-Min Sketch + 候选堆固定内存（Sketch 10MB，K=100时候选堆约40KB），
+     * 不需要HashMap<Long,Integer>记录每个QQ号的精确次数；计数为近似值，附带误差上界
+     *
+     * @param inputFile 输入的QQ号文件（每行一个QQ号）
+     * @param k 需要输出的高频QQ号数量
+     * @return 出现次数最多的K个QQ号（按计数从大到小）
+     */
+    public List<TopKCandidateHeap.Entry> topK(String inputFile, int k) throws IOException {
+        TopKFrequencyCounter counter = new TopKFrequencyCounter(k);
+        CompressedIO.readLines(new File(inputFile), (buf, start, end) -> {
+            long qqNum = IdBytesParser.parseLong(buf, start, end);
+            if (qqNum != IdBytesParser.EMPTY) {
+                counter.offer(0, qqNum);
+            }
+        });
+        List<TopKCandidateHeap.Entry> topK = counter.topK(k);
+        System.out.println("高频统计完成，Top-" + k + "：");
+        for (TopKCandidateHeap.Entry entry : topK) {
+            System.out.println("QQ号：" + entry.getId() + "，出现次数：" + entry.getCount() + "（误差上界：" + entry.getError() + "）");
+        }
+        return topK;
+    }
+}
@@ -0,0 +1,97 @@
+package com.good.job.interview.chapter1;
+
+import com.good.job.interview.CompressedIO;
+import com.good.job.interview.IdBytesParser;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * QQ号集合运算工具类（交集 / 并集 / 差集 / 留存）
+ * 核心逻辑：每个输入文件顺序扫描一遍加载为BitMap，集合运算按long整字做 and / or / andNot，
+ * 2^31范围的位图每次运算只需遍历3355万个long
+ */
+public class QQSetOperations {
+
+    /**
+     * 顺序扫描QQ号文件，加载为BitMap
+     *
+     * @param inputFile QQ号文件（每行一个QQ号）
+     */
+    public static BitMap load(String inputFile) throws IOException {
+        File file = new File(inputFile);
+        if (!file.exists()) {
+            throw new FileNotFoundException("QQ号文件不存在：" + inputFile);
+        }
+        BitMap bitMap = new BitMap(QQNumberDeduplicator.MAX_QQ_NUM);
+        CompressedIO.readLines(file, (buf, start, end) -> {
+            long qqNum = IdBytesParser.parseLong(buf, start, end);
+            if (qqNum != IdBytesParser.EMPTY) {
+                bitMap.set(qqNum);
+            }
+        });
+        return bitMap;
+    }
+
+    /**
+     * 交集：A和B中都出现的QQ号
+     */
+    public static BitMap intersect(String fileA, String fileB) throws IOException {
+        BitMap result = load(fileA);
+        result.and(load(fileB));
+        return result;
+    }
+
+    /**
+     * 并集：A或B中出现过的QQ号
+     */
+    public static BitMap union(String fileA, String fileB) throws IOException {
+        BitMap result = load(fileA);
+        result.or(load(fileB));
+        return result;
+    }
+
+    /**
+     * 差集：在A中但不在B中的QQ号
+     */
+    public static BitMap difference(String fileA, String fileB) throws IOException {
+        BitMap result = load(fileA);
+        result.andNot(load(fileB));
+        return result;
+    }
+
+    /**
+     * 留存率：昨天的QQ号中今天再次出现的比例 = |昨天 ∩ 今天| / |昨天|
+     */
+    public static double retention(String yesterdayFile, String todayFile) throws IOException {
+        BitMap yesterday = load(yesterdayFile);
+        long base = yesterday.cardinality();
+        if (base == 0) {
+            return 0;
+        }
+        yesterday.and(load(todayFile));
+        return (double) yesterday.cardinality() / base;
+    }
+
+    /**
+     * 按从小到大的顺序把位图中的QQ号写入文件（每行一个；文件名以 .gz 结尾时gzip压缩写入）
+     *
+     * @return 写入的QQ号数量
+     */
+    public static long writeTo(BitMap bitMap, String outputFile) throws IOException {
+        long count = 0;
+        try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(
+                CompressedIO.openOutput(new File(outputFile), false), StandardCharsets.UTF_8))) {
+            for (long qqNum = bitMap.nextSetBit(0); qqNum >= 0; qqNum = bitMap.nextSetBit(qqNum + 1)) {
+                writer.write(Long.toString(qqNum));
+                writer.newLine();
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -1,5 +1,8 @@
 package com.good.job.interview.chapter2;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.BitSet;
 
 /**
@@ -35,6 +38,52 @@ public class BloomFilter {
         this.bitSet = new BitSet(bitSetSize);
     }
 
+    /**
+     * 从持久化数据恢复（参数与位数组原样还原，见readFrom）
+     */
+    private BloomFilter(long expectedInsertions, double falsePositiveProbability, int bitSetSize,
+                        int hashFunctionCount, BitSet bitSet) {
+        this.expectedInsertions = expectedInsertions;
+        this.falsePositiveProbability = falsePositiveProbability;
+        this.bitSetSize = bitSetSize;
+        this.hashFunctionCount = hashFunctionCount;
+        this.bitSet = bitSet;
+    }
+
+    /**
+     * 写出布隆过滤器（参数 + 位数组），用于保存到文件后重新加载
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeLong(expectedInsertions);
+        out.writeDouble(falsePositiveProbability);
+        out.writeInt(bitSetSize);
+        out.writeInt(hashFunctionCount);
+        long[] words = bitSet.toLongArray();
+        out.writeInt(words.length);
+        for (long word : words) {
+            out.writeLong(word);
+        }
+    }
+
+    /**
+     * 读取writeTo写出的布隆过滤器
+     */
+    public static BloomFilter readFrom(DataInput in) throws IOException {
+        long expectedInsertions = in.readLong();
+        double falsePositiveProbability = in.readDouble();
+        int bitSetSize = in.readInt();
+        int hashFunctionCount = in.readInt();
+        int wordCount = in.readInt();
+        if (bitSetSize <= 0 || hashFunctionCount <= 0 || wordCount < 0 || wordCount > (bitSetSize + 63) / 64) {
+            throw new IOException("布隆过滤器数据已损坏：位数组大小：" + bitSetSize + "，哈希函数数量：" + hashFunctionCount);
+        }
+        long[] words = new long[wordCount];
+        for (int i = 0; i < wordCount; i++) {
+            words[i] = in.readLong();
+        }
+        return new BloomFilter(expectedInsertions, falsePositiveProbability, bitSetSize, hashFunctionCount, BitSet.valueOf(words));
+    }
+
     /**
      * 计算位数组大小
      */
@@ -104,8 +153,9 @@ public class BloomFilter {
 
     /**
      * MurmurHash64A算法：高效的非加密哈希算法，适合布隆过滤器
+     * （包内可见，供分区布隆过滤器等同包结构复用同一套哈希）
      */
-    private long murmurHash64A(long data, long seed) {
+    static long murmurHash64A(long data, long seed) {
         final long m = 0xc6a4a7935bd1e995L;
         final int r = 47;
 
@@ -0,0 +1,107 @@
+package com.good.job.interview.chapter2;
+
+/**
+ * Count-Min Sketch频率估计（固定内存，只会高估不会低估）
+ * 核心原理：depth行计数器，每行用一个独立哈希把ID映射到width个计数器之一，
+ * 查询时取各行计数的最小值；估计误差不超过 epsilon * 总数量 的概率为 1 - delta
+ */
+public class CountMinSketch {
+    // 行数（独立哈希函数数量）
+    private final int depth;
+    // 每行计数器数量（2的幂）
+    private final int width;
+    // 计数器（depth * width，按行连续存放）
+    private final long[] table;
+    // 已添加的总数量
+    private long totalCount;
+
+    /**
+     * 构造函数
+     * @param epsilon 相对误差（如0.00002表示误差不超过总数量的0.002%）
+     * @param delta 误差超出epsilon的概率（如0.01）
+     */
+    public CountMinSketch(double epsilon, double delta) {
+        if (epsilon <= 0 || delta <= 0 || delta >= 1) {
+            throw new IllegalArgumentException("epsilon必须大于0，delta必须在(0, 1)之间");
+        }
+        // 宽度：w = e / epsilon，向上取整为2的幂，便于用位运算取模
+        int minWidth = (int) Math.ceil(Math.E / epsilon);
+        int w = Integer.highestOneBit(minWidth);
+        this.width = w < minWidth ? w << 1 : w;
+        // 深度：d = ln(1 / delta)
+        this.depth = Math.max(1, (int) Math.ceil(Math.log(1 / delta)));
+        this.table = new long[depth * width];
+    }
+
+    /**
+     * 累加ID的出现次数
+     */
+    public void add(long hi, long lo, long count) {
+        long hash1 = LongPairHashSet.hash(hi, lo);
+        long hash2 = BloomFilter.murmurHash64A(hash1, 0x9e3779b9L);
+        for (int row = 0; row < depth; row++) {
+            table[row * width + index(hash1, hash2, row)] += count;
+        }
+        totalCount += count;
+    }
+
+    /**
+     * 累加ID的出现次数，并返回累加后的估计值（与先add再estimate结果相同，只计算一次哈希）
+     */
+    public long addAndEstimate(long hi, long lo, long count) {
+        long hash1 = LongPairHashSet.hash(hi, lo);
+        long hash2 = BloomFilter.murmurHash64A(hash1, 0x9e3779b9L);
+        long min = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            int i = row * width + index(hash1, hash2, row);
+            table[i] += count;
+            min = Math.min(min, table[i]);
+        }
+        totalCount += count;
+        return min;
+    }
+
+    /**
+     * 估计ID的出现次数（只会高估）
+     */
+    public long estimate(long hi, long lo) {
+        long hash1 = LongPairHashSet.hash(hi, lo);
+        long hash2 = BloomFilter.murmurHash64A(hash1, 0x9e3779b9L);
+        long min = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            min = Math.min(min, table[row * width + index(hash1, hash2, row)]);
+        }
+        return min;
+    }
+
+    /**
+     * 合并另一个相同参数的Sketch（对应计数器相加）
+     */
+    public void merge(CountMinSketch other) {
+        if (other.depth != depth || other.width != width) {
+            throw new IllegalArgumentException("Count-Min Sketch参数不一致，无法合并");
+        }
+        for (int i = 0; i < table.length; i++) {
+            table[i] += other.table[i];
+        }
+        totalCount += other.totalCount;
+    }
+
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    /**
+     * 获取计数器占用的内存大小（字节）
+     */
+    public long getMemorySize() {
+        return (long) table.length * Long.BYTES;
+    }
+
+    /**
+     * 双重哈希生成第row行的列下标：h1 + row * h2
+     */
+    private int index(long hash1, long hash2, int row) {
+        return (int) (hash1 + row * hash2) & (width - 1);
+    }
+}
@@ -1,9 +1,15 @@
 package com.good.job.interview.chapter2;
 
+import com.good.job.interview.CompressedIO;
+
 import java.io.*;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * 海量用户ID数据分片工具类
@@ -12,6 +18,8 @@ import java.util.concurrent.Executors;
 public class DataShardingUtil {
     // 分片数量，可根据内存大小调整（8G内存建议100-200个分片）
     private static final int SHARD_COUNT = 10;
+    // 分片文件扩展名：".txt" 明文，".txt.gz" gzip压缩（磁盘占用约为明文的40%，分片统计时自动解压）
+    private static final String SHARD_FILE_SUFFIX = ".txt";
     // 线程池，利用多核CPU并行分片，提升效率
     private static final ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
 
@@ -34,42 +42,78 @@ public class DataShardingUtil {
             }
         }
 
-        // 处理每个原始文件
-        String[] rawFiles = rawFilePath.split(",");
-        for (String rawFile : rawFiles) {
-            File file = new File(rawFile);
-            if (!file.exists()) {
-                throw new FileNotFoundException("原始文件不存在：" + rawFile);
+        // 所有原始文件共用一组分片输出流：BufferedWriter.write是同步方法，多个任务并发写入同一分片不会交错
+        // （gzip压缩输出时，每个分片文件只能有一个压缩流）
+        BufferedWriter[] shardWriters = new BufferedWriter[SHARD_COUNT];
+        try {
+            for (int i = 0; i < SHARD_COUNT; i++) {
+                File shardFile = new File(shardDir + "/shard_" + i + SHARD_FILE_SUFFIX);
+                shardWriters[i] = new BufferedWriter(new OutputStreamWriter(
+                        CompressedIO.openOutput(shardFile, true), StandardCharsets.UTF_8));
+            }
+
+            // 处理每个原始文件
+            String[] rawFiles = rawFilePath.split(",");
+            List<Future<?>> futures = new ArrayList<>();
+            for (String rawFile : rawFiles) {
+                File file = new File(rawFile);
+                if (!file.exists()) {
+                    throw new FileNotFoundException("原始文件不存在：" + rawFile);
+                }
+                // 提交分片任务到线程池
+                futures.add(executor.submit(() -> doShard(file, shardWriters)));
             }
-            // 提交分片任务到线程池
-            executor.submit(() -> doShard(file, shardDir));
-        }
 
-        // 关闭线程池，等待所有任务完成
-        executor.shutdown();
-        while (!executor.isTerminated()) {
+            // 逐个等待分片任务：任一原始文件分片失败（如gzip文件截断或损坏）时取消其余任务并抛出异常，
+            // 调用方不会在分片不完整时把分片标记为完成
             try {
-                Thread.sleep(100);
+                for (int i = 0; i < futures.size(); i++) {
+                    try {
+                        futures.get(i).get();
+                    } catch (ExecutionException e) {
+                        executor.shutdownNow();
+                        throw new RuntimeException("原始文件分片失败：" + rawFiles[i], e.getCause());
+                    }
+                }
             } catch (InterruptedException e) {
+                executor.shutdownNow();
                 Thread.currentThread().interrupt();
                 throw new RuntimeException("分片任务中断", e);
+            } finally {
+                executor.shutdown();
+            }
+        } finally {
+            // 关闭所有输出流
+            for (BufferedWriter writer : shardWriters) {
+                if (writer != null) {
+                    writer.close();
+                }
             }
         }
     }
 
     /**
-     * 单个文件的分片逻辑
+     * 删除分片目录下已有的分片文件（分片以追加方式写入，中断后重新分片前需先清空）
      */
-    private static void doShard(File rawFile, String shardDir) {
-        try (BufferedReader reader = new BufferedReader(new FileReader(rawFile, StandardCharsets.UTF_8))) {
-            String line;
-            // 初始化100个分片输出流
-            BufferedWriter[] shardWriters = new BufferedWriter[SHARD_COUNT];
-            for (int i = 0; i < SHARD_COUNT; i++) {
-                File shardFile = new File(shardDir + "/shard_" + i + ".txt");
-                shardWriters[i] = new BufferedWriter(new FileWriter(shardFile, StandardCharsets.UTF_8, true));
+    public static void clearShards(String shardDir) throws IOException {
+        File[] shardFiles = new File(shardDir).listFiles((dir, name) -> name.startsWith("shard_"));
+        if (shardFiles == null) {
+            return;
+        }
+        for (File shardFile : shardFiles) {
+            if (!shardFile.delete()) {
+                throw new IOException("删除分片文件失败：" + shardFile);
             }
+        }
+    }
 
+    /**
+     * 单个文件的分片逻辑（原始文件为gzip压缩时自动解压读取）
+     */
+    private static void doShard(File rawFile, BufferedWriter[] shardWriters) {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                CompressedIO.openInput(rawFile), StandardCharsets.UTF_8))) {
+            String line;
             // 读取每行用户ID，进行分片写入
             while ((line = reader.readLine()) != null) {
                 String userIdStr = line.trim();
@@ -91,11 +135,6 @@ public class DataShardingUtil {
                 // 关键修改2：直接写入字符串ID，而非long
                 shardWriters[shardIndex].write(userIdStr + "\n");
             }
-
-            // 关闭所有输出流
-            for (BufferedWriter writer : shardWriters) {
-                writer.close();
-            }
         } catch (IOException e) {
             throw new RuntimeException("分片处理失败：" + rawFile.getName(), e);
         }
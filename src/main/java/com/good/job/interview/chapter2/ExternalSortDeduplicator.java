@@ -0,0 +1,338 @@
+package com.good.job.interview.chapter2;
+
+import com.good.job.interview.CompressedIO;
+import com.good.job.interview.IdBytesParser;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 外部排序精确去重引擎（适配20位用户ID等超出BitMap范围的ID）
+ * 核心逻辑：
+ * 1. 按行解析ID到基本类型数组（十进制拆分为高位段+低18位两段long）
+ * 2. 数组写满后基数排序、段内去重，以二进制有序段（run）溢写到磁盘
+ * 3. 用基本类型小顶堆对所有有序段做K路归并，归并时丢弃重复ID
+ * 全程顺序读写磁盘，内存只受单个有序段大小限制，结果精确（无布隆过滤器误判）
+ */
+public class ExternalSortDeduplicator {
+    // 默认单个有序段容纳的ID数量（400万，两段long加排序临时数组约占128MB）
+    private static final int DEFAULT_RUN_CAPACITY = 4 * 1024 * 1024;
+    // 单次归并的最大有序段数量（超过时先分组归并成更大的有序段）
+    private static final int MAX_MERGE_FAN_IN = 128;
+
+    // 单个有序段容纳的ID数量
+    private final int runCapacity;
+    // 临时有序段文件存储目录
+    private final File tempDir;
+
+    public ExternalSortDeduplicator(String tempDir) {
+        this(tempDir, DEFAULT_RUN_CAPACITY);
+    }
+
+    /**
+     * 构造函数
+     * @param tempDir 临时有序段文件存储目录（会自动创建）
+     * @param runCapacity 单个有序段容纳的ID数量，决定内存占用（每个ID约32字节）
+     */
+    public ExternalSortDeduplicator(String tempDir, int runCapacity) {
+        if (runCapacity <= 0) {
+            throw new IllegalArgumentException("有序段容量必须大于0：" + runCapacity);
+        }
+        this.tempDir = new File(tempDir);
+        this.runCapacity = runCapacity;
+    }
+
+    public static void main(String[] args) throws IOException {
+        // 示例：对多个原始文件精确去重，输出有序的唯一用户ID
+        ExternalSortDeduplicator deduplicator = new ExternalSortDeduplicator("D:/dedup_tmp");
+        long uniqueCount = deduplicator.deduplicate("D:/raw_data/user_id_1.txt,D:/raw_data/user_id_2.txt", "D:/dedup_result.txt");
+        System.out.println("唯一用户ID数量：" + uniqueCount);
+    }
+
+    /**
+     * 精确去重并输出有序的唯一ID（每行一个，不含前导零）
+     * @param rawFilePath 原始文件路径（多个文件用逗号分隔）
+     * @param outputFile 输出文件路径
+     * @return 唯一ID数量
+     */
+    public long deduplicate(String rawFilePath, String outputFile) throws IOException {
+        try (IdPairTextWriter writer = new IdPairTextWriter(outputFile)) {
+            return run(rawFilePath, writer::write);
+        }
+    }
+
+    /**
+     * 只统计唯一ID数量（精确UV），不输出结果文件
+     * @param rawFilePath 原始文件路径（多个文件用逗号分隔）
+     * @return 唯一ID数量
+     */
+    public long countDistinct(String rawFilePath) throws IOException {
+        return run(rawFilePath, (hi, lo) -> {
+        });
+    }
+
+    /**
+     * 去重主流程：生成有序段 -> 多轮归并 -> 最终归并输出到sink
+     */
+    private long run(String rawFilePath, RecordSink sink) throws IOException {
+        if (!tempDir.exists() && !tempDir.mkdirs()) {
+            throw new IOException("创建临时目录失败：" + tempDir);
+        }
+        Path workDir = Files.createTempDirectory(tempDir.toPath(), "dedup_runs_");
+        RunBuilder builder = new RunBuilder(workDir);
+        try {
+            // 步骤1：读取原始文件，生成有序段
+            for (String rawFile : rawFilePath.split(",")) {
+                File file = new File(rawFile);
+                if (!file.exists()) {
+                    throw new FileNotFoundException("原始文件不存在：" + rawFile);
+                }
+                CompressedIO.readLines(file, builder::onLine);
+            }
+
+            // 全部数据放得进一个有序段：直接在内存中排序输出，不落盘
+            if (builder.runs.isEmpty()) {
+                long count = builder.emitInMemory(sink);
+                System.out.println("内存内完成去重，唯一ID数量：" + count);
+                return count;
+            }
+            builder.spill();
+            System.out.println("有序段生成完成，共" + builder.runs.size() + "个");
+
+            // 步骤2：有序段过多时分组归并，控制同时打开的文件数
+            List<Path> runs = builder.runs;
+            int round = 0;
+            while (runs.size() > MAX_MERGE_FAN_IN) {
+                round++;
+                List<Path> merged = new ArrayList<>();
+                for (int i = 0; i < runs.size(); i += MAX_MERGE_FAN_IN) {
+                    List<Path> group = runs.subList(i, Math.min(i + MAX_MERGE_FAN_IN, runs.size()));
+                    Path target = workDir.resolve("merge_" + round + "_" + merged.size() + ".bin");
+                    try (IdPairFileWriter writer = new IdPairFileWriter(target)) {
+                        merge(group, writer::write);
+                    }
+                    for (Path run : group) {
+                        Files.deleteIfExists(run);
+                    }
+                    merged.add(target);
+                }
+                runs = merged;
+                System.out.println("第" + round + "轮归并完成，剩余有序段：" + runs.size() + "个");
+            }
+
+            // 步骤3：最终K路归并
+            long count = merge(runs, sink);
+            System.out.println("K路归并完成，唯一ID数量：" + count);
+            return count;
+        } finally {
+            deleteRecursively(workDir.toFile());
+        }
+    }
+
+    /**
+     * K路归并多个有序段，丢弃重复ID后写入sink
+     * @return 写入sink的唯一ID数量
+     */
+    private static long merge(List<Path> runs, RecordSink sink) throws IOException {
+        int k = runs.size();
+        IdPairFileReader[] readers = new IdPairFileReader[k];
+        // 小顶堆：存放有序段下标，按各有序段当前记录排序
+        int[] heap = new int[k];
+        int heapSize = 0;
+        try {
+            for (int i = 0; i < k; i++) {
+                readers[i] = new IdPairFileReader(runs.get(i));
+                if (readers[i].next()) {
+                    heap[heapSize++] = i;
+                }
+            }
+            for (int i = (heapSize >>> 1) - 1; i >= 0; i--) {
+                siftDown(heap, heapSize, i, readers);
+            }
+
+            long count = 0;
+            boolean hasLast = false;
+            long lastHi = 0;
+            long lastLo = 0;
+            while (heapSize > 0) {
+                IdPairFileReader top = readers[heap[0]];
+                if (!hasLast || top.hi != lastHi || top.lo != lastLo) {
+                    sink.accept(top.hi, top.lo);
+                    lastHi = top.hi;
+                    lastLo = top.lo;
+                    hasLast = true;
+                    count++;
+                }
+                if (!top.next()) {
+                    heap[0] = heap[--heapSize];
+                }
+                siftDown(heap, heapSize, 0, readers);
+            }
+            return count;
+        } finally {
+            for (IdPairFileReader reader : readers) {
+                if (reader != null) {
+                    reader.close();
+                }
+            }
+        }
+    }
+
+    private static void siftDown(int[] heap, int size, int index, IdPairFileReader[] readers) {
+        int value = heap[index];
+        while (true) {
+            int child = (index << 1) + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && less(readers[heap[child + 1]], readers[heap[child]])) {
+                child++;
+            }
+            if (!less(readers[heap[child]], readers[value])) {
+                break;
+            }
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = value;
+    }
+
+    private static boolean less(IdPairFileReader a, IdPairFileReader b) {
+        return a.hi < b.hi || (a.hi == b.hi && a.lo < b.lo);
+    }
+
+    /**
+     * LSD基数排序：先按低位段lo的8个字节、再按高位段hi的8个字节做稳定的计数排序
+     * 某个字节在所有ID上都相同时跳过该轮（如20位ID的高位段只占低字节，高字节轮次全部跳过）
+     */
+    static void radixSort(long[] hi, long[] lo, long[] tmpHi, long[] tmpLo, int n) {
+        if (n <= 1) {
+            return;
+        }
+        long[] srcHi = hi;
+        long[] srcLo = lo;
+        long[] dstHi = tmpHi;
+        long[] dstLo = tmpLo;
+        int[] counts = new int[256];
+        for (int pass = 0; pass < 16; pass++) {
+            long[] keys = pass < 8 ? srcLo : srcHi;
+            int shift = (pass & 7) << 3;
+            Arrays.fill(counts, 0);
+            for (int i = 0; i < n; i++) {
+                counts[(int) (keys[i] >>> shift) & 0xFF]++;
+            }
+            if (counts[(int) (keys[0] >>> shift) & 0xFF] == n) {
+                continue;
+            }
+            int offset = 0;
+            for (int b = 0; b < 256; b++) {
+                int c = counts[b];
+                counts[b] = offset;
+                offset += c;
+            }
+            for (int i = 0; i < n; i++) {
+                int pos = counts[(int) (keys[i] >>> shift) & 0xFF]++;
+                dstHi[pos] = srcHi[i];
+                dstLo[pos] = srcLo[i];
+            }
+            long[] swap = srcHi;
+            srcHi = dstHi;
+            dstHi = swap;
+            swap = srcLo;
+            srcLo = dstLo;
+            dstLo = swap;
+        }
+        if (srcHi != hi) {
+            System.arraycopy(srcHi, 0, hi, 0, n);
+            System.arraycopy(srcLo, 0, lo, 0, n);
+        }
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        if (!file.delete() && file.exists()) {
+            System.err.println("临时文件删除失败：" + file);
+        }
+    }
+
+    /**
+     * 唯一ID的接收方（输出文件 / 有序段文件 / 仅计数）
+     */
+    @FunctionalInterface
+    private interface RecordSink {
+        void accept(long hi, long lo) throws IOException;
+    }
+
+    /**
+     * 有序段生成器：攒满一个有序段后排序、去重并溢写到磁盘
+     */
+    private final class RunBuilder {
+        private final Path workDir;
+        private final long[] his = new long[runCapacity];
+        private final long[] los = new long[runCapacity];
+        private final long[] tmpHis = new long[runCapacity];
+        private final long[] tmpLos = new long[runCapacity];
+        private final long[] parsed = new long[2];
+        private final List<Path> runs = new ArrayList<>();
+        private int size;
+
+        RunBuilder(Path workDir) {
+            this.workDir = workDir;
+        }
+
+        void onLine(ByteBuffer buf, int start, int end) throws IOException {
+            if (!IdBytesParser.parseWide(buf, start, end, parsed)) {
+                return;
+            }
+            his[size] = parsed[0];
+            los[size] = parsed[1];
+            if (++size == runCapacity) {
+                spill();
+            }
+        }
+
+        /**
+         * 排序当前缓冲区并以二进制有序段写入磁盘（段内相邻重复ID只写一次）
+         */
+        void spill() throws IOException {
+            if (size == 0) {
+                return;
+            }
+            Path runFile = workDir.resolve("run_" + runs.size() + ".bin");
+            try (IdPairFileWriter writer = new IdPairFileWriter(runFile)) {
+                emitSortedUnique(writer::write);
+            }
+            runs.add(runFile);
+            size = 0;
+        }
+
+        long emitInMemory(RecordSink sink) throws IOException {
+            return emitSortedUnique(sink);
+        }
+
+        private long emitSortedUnique(RecordSink sink) throws IOException {
+            radixSort(his, los, tmpHis, tmpLos, size);
+            long count = 0;
+            for (int i = 0; i < size; i++) {
+                if (i == 0 || his[i] != his[i - 1] || los[i] != los[i - 1]) {
+                    sink.accept(his[i], los[i]);
+                    count++;
+                }
+            }
+            return count;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.good.job.interview.chapter2;
+
+import java.util.Arrays;
+
+/**
+ * HyperLogLog基数估计（固定内存，可合并）
+ * 核心原理：哈希值高p位选择2^p个寄存器之一，寄存器记录剩余位中第一个1出现位置的最大值，
+ * 用各寄存器的调和平均估计不重复ID数量；标准误差约 1.04 / sqrt(2^p)（p=14时约0.8%，16KB内存）。
+ * 两个HLL对应寄存器取最大值即为并集，适合按时间桶统计后合并出任意窗口的UV
+ */
+public class HyperLogLog {
+    // 哈希种子（与布隆过滤器、分区布隆过滤器、LongPairHashSet / Count-Min Sketch使用的种子都不同）
+    private static final long HASH_SEED = 0x3c6ef372L;
+    private static final int MIN_PRECISION = 4;
+    private static final int MAX_PRECISION = 18;
+
+    // 寄存器索引位数
+    private final int precision;
+    // 寄存器（2^precision个，每个记录最大的前导零个数+1）
+    private final byte[] registers;
+
+    /**
+     * 构造函数
+     * @param precision 寄存器索引位数（4-18），内存占用 2^precision 字节
+     */
+    public HyperLogLog(int precision) {
+        if (precision < MIN_PRECISION || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException("精度必须在[" + MIN_PRECISION + ", " + MAX_PRECISION + "]之间：" + precision);
+        }
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    /**
+     * 添加一个ID
+     */
+    public void add(long id) {
+        long hash = BloomFilter.murmurHash64A(id, HASH_SEED);
+        int index = (int) (hash >>> (64 - precision));
+        // 剩余位左移到最高位，统计前导零；全为0时取最大值
+        long rest = hash << precision;
+        int rank = rest == 0 ? 64 - precision + 1 : Long.numberOfLeadingZeros(rest) + 1;
+        if (rank > registers[index]) {
+            registers[index] = (byte) rank;
+        }
+    }
+
+    /**
+     * 合并另一个相同精度的HLL（对应寄存器取最大值，结果为两者的并集）
+     */
+    public void merge(HyperLogLog other) {
+        if (other.precision != precision) {
+            throw new IllegalArgumentException("HyperLogLog精度不一致，无法合并：" + precision + " / " + other.precision);
+        }
+        for (int i = 0; i < registers.length; i++) {
+            if (other.registers[i] > registers[i]) {
+                registers[i] = other.registers[i];
+            }
+        }
+    }
+
+    /**
+     * 估计不重复ID数量
+     */
+    public long cardinality() {
+        int m = registers.length;
+        double sum = 0;
+        int zeroRegisters = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                zeroRegisters++;
+            }
+        }
+        double alpha = m >= 128 ? 0.7213 / (1 + 1.079 / m) : m >= 64 ? 0.709 : m >= 32 ? 0.697 : 0.673;
+        double estimate = alpha * m * m / sum;
+        // 小基数修正：还有空寄存器时改用线性计数（64位哈希不需要大基数修正）
+        if (estimate <= 2.5 * m && zeroRegisters > 0) {
+            estimate = m * Math.log((double) m / zeroRegisters);
+        }
+        return Math.round(estimate);
+    }
+
+    /**
+     * 清空所有寄存器（时间桶过期后复用，避免重复分配内存）
+     */
+    public void clear() {
+        Arrays.fill(registers, (byte) 0);
+    }
+
+    public int getPrecision() {
+        return precision;
+    }
+
+    /**
+     * 获取寄存器占用的内存大小（字节）
+     */
+    public long getMemorySize() {
+        return registers.length;
+    }
+}
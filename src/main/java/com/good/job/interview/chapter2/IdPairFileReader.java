@@ -0,0 +1,53 @@
+package com.good.job.interview.chapter2;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 宽ID二进制文件读取器，当前记录保存在hi/lo字段中
+ */
+class IdPairFileReader implements AutoCloseable {
+    // 读缓冲区大小（256KB）
+    private static final int BUFFER_SIZE = 256 * 1024;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    // 当前记录
+    long hi;
+    long lo;
+
+    IdPairFileReader(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        buffer.flip();
+    }
+
+    /**
+     * 读取下一条记录
+     * @return false表示文件已读完
+     */
+    boolean next() throws IOException {
+        if (buffer.remaining() < IdPairFileWriter.RECORD_BYTES) {
+            buffer.compact();
+            while (buffer.position() < IdPairFileWriter.RECORD_BYTES) {
+                if (channel.read(buffer) < 0) {
+                    break;
+                }
+            }
+            buffer.flip();
+            if (buffer.remaining() < IdPairFileWriter.RECORD_BYTES) {
+                return false;
+            }
+        }
+        hi = buffer.getLong();
+        lo = buffer.getLong();
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,52 @@
+package com.good.job.interview.chapter2;
+
+import com.good.job.interview.IdBytesParser;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 宽ID文本结果写入器：每行一个十进制ID（不含前导零）
+ */
+class IdPairTextWriter implements AutoCloseable {
+    // 写缓冲区大小（4MB）
+    private static final int BUFFER_SIZE = 4 * 1024 * 1024;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final byte[] scratch = new byte[24];
+
+    IdPairTextWriter(String outputFile) throws IOException {
+        this.channel = FileChannel.open(new File(outputFile).toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+    }
+
+    void write(long hi, long lo) throws IOException {
+        // 一行最多36位数字+换行符
+        if (buffer.remaining() < IdBytesParser.WIDE_MAX_DIGITS + 1) {
+            flush();
+        }
+        IdBytesParser.writeWide(buffer, hi, lo, scratch);
+        buffer.put((byte) '\n');
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.good.job.interview.chapter2;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * 基本类型(hi, lo)二元组哈希集合（开放寻址 + 线性探测）
+ * 用于存放IdBytesParser.parseWide拆分后的宽ID，避免HashSet<String>/HashSet<BigInteger>的对象开销
+ * 高位段hi非负，用-1标记空槽位
+ */
+class LongPairHashSet {
+    private static final long EMPTY_SLOT = -1L;
+    // 哈希种子
+    private static final long HASH_SEED = 0x2545f491L;
+
+    private long[] his;
+    private long[] los;
+    private int mask;
+    private int size;
+
+    LongPairHashSet(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, expectedSize) * 2 - 1) << 1;
+        allocate(capacity);
+    }
+
+    /**
+     * 添加元素
+     * @return true表示此前不存在
+     */
+    boolean add(long hi, long lo) {
+        int index = indexOf(hi, lo);
+        if (his[index] != EMPTY_SLOT) {
+            return false;
+        }
+        his[index] = hi;
+        los[index] = lo;
+        // 负载因子超过0.5时扩容，保证线性探测的探测长度较短
+        if (++size > (mask + 1) >>> 1) {
+            rehash();
+        }
+        return true;
+    }
+
+    boolean contains(long hi, long lo) {
+        return his[indexOf(hi, lo)] != EMPTY_SLOT;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * 遍历所有元素（顺序为哈希槽位顺序）
+     */
+    void forEach(PairConsumer consumer) throws IOException {
+        for (int i = 0; i <= mask; i++) {
+            if (his[i] != EMPTY_SLOT) {
+                consumer.accept(his[i], los[i]);
+            }
+        }
+    }
+
+    /**
+     * 计算(hi, lo)的哈希值（分片与集合内部共用）
+     */
+    static long hash(long hi, long lo) {
+        return BloomFilter.murmurHash64A(lo ^ BloomFilter.murmurHash64A(hi, HASH_SEED), HASH_SEED);
+    }
+
+    /**
+     * 查找(hi, lo)所在槽位，不存在时返回应插入的空槽位
+     */
+    private int indexOf(long hi, long lo) {
+        int index = (int) hash(hi, lo) & mask;
+        while (his[index] != EMPTY_SLOT && (his[index] != hi || los[index] != lo)) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    private void allocate(int capacity) {
+        his = new long[capacity];
+        los = new long[capacity];
+        Arrays.fill(his, EMPTY_SLOT);
+        mask = capacity - 1;
+    }
+
+    private void rehash() {
+        long[] oldHis = his;
+        long[] oldLos = los;
+        allocate(oldHis.length << 1);
+        for (int i = 0; i < oldHis.length; i++) {
+            if (oldHis[i] != EMPTY_SLOT) {
+                int index = indexOf(oldHis[i], oldLos[i]);
+                his[index] = oldHis[i];
+                los[index] = oldLos[i];
+            }
+        }
+    }
+
+    /**
+     * (hi, lo)元素消费者
+     */
+    @FunctionalInterface
+    interface PairConsumer {
+        void accept(long hi, long lo) throws IOException;
+    }
+}
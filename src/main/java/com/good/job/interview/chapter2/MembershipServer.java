@@ -0,0 +1,238 @@
+package com.good.job.interview.chapter2;
+
+import com.good.job.interview.IdBytesParser;
+import com.good.job.interview.chapter1.BitMap;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 内存成员查询服务（基于JDK自带的HttpServer，可嵌入在线服务或本机单独启动）
+ * 核心逻辑：去重结果加载为BitMap（QQ号）或分区布隆过滤器（用户ID）常驻内存，
+ * 在线代码通过HTTP查询某个ID是否已出现过、实时添加新ID，不必重新跑批处理任务。
+ * 接口没有鉴权（/add会修改数据），默认只监听本机回环地址，监听其他地址需显式指定
+ *
+ * 接口（ID均为十进制数字）：
+ * GET  /contains?id=123   返回 1（存在）或 0（不存在）
+ * POST /contains          请求体每行一个ID，按行返回 1 / 0（批量查询，一次请求可查询上百万个ID）
+ * POST /add               请求体每行一个ID，返回本次新增的ID数量（只接受POST，其他方法返回405）
+ * GET  /stats             返回累计查询数和新增数
+ */
+public class MembershipServer implements AutoCloseable {
+    // 关闭服务时等待处理中请求的最长时间（秒）
+    private static final int STOP_DELAY_SECONDS = 1;
+
+    /**
+     * 成员存储：查询与添加都需要支持多线程并发调用
+     */
+    public interface MembershipStore {
+        boolean contains(long id);
+
+        /**
+         * 添加ID
+         * @return true表示此前不存在（本次新增）
+         */
+        boolean add(long id);
+    }
+
+    /**
+     * 基于BitMap的存储（精确判断，适合QQ号等范围有限的ID；添加使用原子按位或）
+     */
+    public static MembershipStore of(BitMap bitMap) {
+        return new MembershipStore() {
+            @Override
+            public boolean contains(long id) {
+                return bitMap.get(id);
+            }
+
+            @Override
+            public boolean add(long id) {
+                return bitMap.setIfAbsent(id);
+            }
+        };
+    }
+
+    /**
+     * 基于分区布隆过滤器的存储（适合20位用户ID等大范围ID，存在误判；分区加锁，并发互不阻塞）
+     */
+    public static MembershipStore of(PartitionedBloomFilter bloomFilter) {
+        return new MembershipStore() {
+            @Override
+            public boolean contains(long id) {
+                return bloomFilter.contains(id);
+            }
+
+            @Override
+            public boolean add(long id) {
+                return bloomFilter.addIfAbsent(id);
+            }
+        };
+    }
+
+    private final MembershipStore store;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final AtomicLong queryCount = new AtomicLong(0);
+    private final AtomicLong addCount = new AtomicLong(0);
+
+    /**
+     * 构造函数：只监听本机回环地址（调用start后开始处理请求）
+     * @param store 成员存储
+     * @param port 监听端口（0表示随机分配空闲端口）
+     * @param threads 处理请求的线程数
+     */
+    public MembershipServer(MembershipStore store, int port, int threads) throws IOException {
+        this(store, InetAddress.getLoopbackAddress(), port, threads);
+    }
+
+    /**
+     * 构造函数：监听指定地址（非回环地址会把无鉴权的查询和添加接口暴露到网络上，需调用方显式选择）
+     * @param store 成员存储
+     * @param bindAddress 监听地址
+     * @param port 监听端口（0表示随机分配空闲端口）
+     * @param threads 处理请求的线程数
+     */
+    public MembershipServer(MembershipStore store, InetAddress bindAddress, int port, int threads) throws IOException {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("线程数必须大于0：" + threads);
+        }
+        this.store = store;
+        this.server = HttpServer.create(new InetSocketAddress(bindAddress, port), 0);
+        this.executor = Executors.newFixedThreadPool(threads);
+        server.setExecutor(executor);
+        server.createContext("/contains", exchange -> handle(exchange, false));
+        server.createContext("/add", exchange -> handle(exchange, true));
+        server.createContext("/stats", exchange -> respond(exchange, 200,
+                ("queries=" + queryCount.get() + "\nadds=" + addCount.get() + "\n").getBytes(StandardCharsets.UTF_8)));
+    }
+
+    public void start() {
+        server.start();
+        System.out.println("成员查询服务已启动，地址：" + server.getAddress().getAddress().getHostAddress() + "，端口：" + getPort());
+    }
+
+    /**
+     * 实际监听的端口
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(STOP_DELAY_SECONDS);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(STOP_DELAY_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 处理查询 / 添加请求：GET取查询参数id，POST取请求体中每行一个ID；添加只接受POST
+     */
+    private void handle(HttpExchange exchange, boolean add) throws IOException {
+        boolean post = "POST".equals(exchange.getRequestMethod());
+        if (add && !post) {
+            exchange.getResponseHeaders().set("Allow", "POST");
+            respond(exchange, 405, "添加ID只接受POST请求\n".getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+        try {
+            byte[] body;
+            if (post) {
+                body = exchange.getRequestBody().readAllBytes();
+            } else {
+                String id = queryParameter(exchange.getRequestURI().getRawQuery(), "id");
+                if (id == null) {
+                    respond(exchange, 400, "缺少参数：id\n".getBytes(StandardCharsets.UTF_8));
+                    return;
+                }
+                body = id.getBytes(StandardCharsets.US_ASCII);
+            }
+            respond(exchange, 200, add ? addAll(body) : containsAll(body));
+        } catch (NumberFormatException e) {
+            respond(exchange, 400, ("ID格式错误：" + e.getMessage() + "\n").getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * 批量查询：按行输出 1 / 0，空行输出 0，与请求行一一对应
+     */
+    private byte[] containsAll(byte[] body) {
+        ByteBuffer buf = ByteBuffer.wrap(body);
+        // 每行至少占1个字节（最后一行可能没有换行符），结果每行2个字节
+        byte[] result = new byte[(body.length + 1) * 2];
+        int resultLength = 0;
+        int lineStart = 0;
+        long lines = 0;
+        while (lineStart < body.length) {
+            int lineEnd = IdBytesParser.indexOfNewline(buf, lineStart, body.length);
+            if (lineEnd < 0) {
+                lineEnd = body.length;
+            }
+            long id = IdBytesParser.parseLong(buf, lineStart, lineEnd);
+            result[resultLength++] = (byte) (id != IdBytesParser.EMPTY && store.contains(id) ? '1' : '0');
+            result[resultLength++] = '\n';
+            lines++;
+            lineStart = lineEnd + 1;
+        }
+        queryCount.addAndGet(lines);
+        return Arrays.copyOf(result, resultLength);
+    }
+
+    /**
+     * 批量添加：返回本次新增（此前不存在）的ID数量
+     */
+    private byte[] addAll(byte[] body) {
+        ByteBuffer buf = ByteBuffer.wrap(body);
+        long added = 0;
+        int lineStart = 0;
+        while (lineStart < body.length) {
+            int lineEnd = IdBytesParser.indexOfNewline(buf, lineStart, body.length);
+            if (lineEnd < 0) {
+                lineEnd = body.length;
+            }
+            long id = IdBytesParser.parseLong(buf, lineStart, lineEnd);
+            if (id != IdBytesParser.EMPTY && store.add(id)) {
+                added++;
+            }
+            lineStart = lineEnd + 1;
+        }
+        addCount.addAndGet(added);
+        return (added + "\n").getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static String queryParameter(String query, String name) {
+        if (query == null) {
+            return null;
+        }
+        for (String pair : query.split("&")) {
+            if (pair.startsWith(name + "=")) {
+                return pair.substring(name.length() + 1);
+            }
+        }
+        return null;
+    }
+
+    private static void respond(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        // 长度为0时HttpServer会改用分块传输，空响应体需传-1
+        exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.good.job.interview.chapter2;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * 分区布隆过滤器（线程安全）
+ * 核心原理：按ID哈希将数据路由到多个独立的子布隆过滤器，每个子过滤器单独加锁，
+ * 多线程写入时只在同一分区上竞争；配合按分区批量写入，每批只加一次锁
+ */
+public class PartitionedBloomFilter {
+    // 分区路由使用的哈希种子（与BloomFilter内部的两个种子不同，保证路由与位索引相互独立）
+    private static final long PARTITION_SEED = 0x5bd1e995L;
+    // 持久化文件的魔数（"PBLF"）
+    private static final int FILE_MAGIC = 0x50424C46;
+    // 保存 / 加载时的缓冲区大小（1MB）
+    private static final int FILE_BUFFER_SIZE = 1024 * 1024;
+
+    // 子布隆过滤器
+    private final BloomFilter[] partitions;
+    // 分区掩码（分区数为2的幂）
+    private final int mask;
+
+    /**
+     * 构造函数
+     * @param expectedInsertions 预计插入数据总量（平均分摊到每个分区）
+     * @param falsePositiveProbability 可接受的误判率
+     * @param partitionCount 分区数量（会向上取整为2的幂）
+     */
+    public PartitionedBloomFilter(long expectedInsertions, double falsePositiveProbability, int partitionCount) {
+        if (partitionCount <= 0) {
+            throw new IllegalArgumentException("分区数量必须大于0");
+        }
+        int size = Integer.highestOneBit(partitionCount);
+        if (size < partitionCount) {
+            size <<= 1;
+        }
+        this.mask = size - 1;
+        this.partitions = new BloomFilter[size];
+        long insertionsPerPartition = Math.max(1, (expectedInsertions + size - 1) / size);
+        for (int i = 0; i < size; i++) {
+            partitions[i] = new BloomFilter(insertionsPerPartition, falsePositiveProbability);
+        }
+    }
+
+    /**
+     * 从已加载的子布隆过滤器构造（分区数为2的幂）
+     */
+    private PartitionedBloomFilter(BloomFilter[] partitions) {
+        this.partitions = partitions;
+        this.mask = partitions.length - 1;
+    }
+
+    /**
+     * 保存到文件（写临时文件并落盘后原子替换，保存过程中可以继续查询和添加，各分区按自身的锁依次写出）
+     */
+    public void save(File file) throws IOException {
+        Path target = file.getAbsoluteFile().toPath();
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (FileOutputStream fileOut = new FileOutputStream(temp.toFile())) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut, FILE_BUFFER_SIZE));
+            out.writeInt(FILE_MAGIC);
+            out.writeInt(partitions.length);
+            for (BloomFilter filter : partitions) {
+                synchronized (filter) {
+                    filter.writeTo(out);
+                }
+            }
+            out.flush();
+            fileOut.getFD().sync();
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * 加载save保存的分区布隆过滤器
+     */
+    public static PartitionedBloomFilter load(File file) throws IOException {
+        if (!file.exists()) {
+            throw new FileNotFoundException("布隆过滤器文件不存在：" + file);
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), FILE_BUFFER_SIZE))) {
+            if (in.readInt() != FILE_MAGIC) {
+                throw new IOException("不是分区布隆过滤器文件：" + file);
+            }
+            int partitionCount = in.readInt();
+            if (partitionCount <= 0 || Integer.bitCount(partitionCount) != 1) {
+                throw new IOException("布隆过滤器文件已损坏，分区数量：" + partitionCount);
+            }
+            BloomFilter[] partitions = new BloomFilter[partitionCount];
+            for (int i = 0; i < partitionCount; i++) {
+                partitions[i] = BloomFilter.readFrom(in);
+            }
+            return new PartitionedBloomFilter(partitions);
+        }
+    }
+
+    /**
+     * 计算用户ID所属分区
+     */
+    public int partitionOf(long userId) {
+        return (int) (BloomFilter.murmurHash64A(userId, PARTITION_SEED) >>> 32) & mask;
+    }
+
+    /**
+     * 分区数量
+     */
+    public int getPartitionCount() {
+        return partitions.length;
+    }
+
+    /**
+     * 不存在则添加
+     * @return true表示此前不存在（本次新增），false表示已存在（可能误判）
+     */
+    public boolean addIfAbsent(long userId) {
+        BloomFilter filter = partitions[partitionOf(userId)];
+        synchronized (filter) {
+            if (filter.contains(userId)) {
+                return false;
+            }
+            filter.add(userId);
+            return true;
+        }
+    }
+
+    /**
+     * 批量写入同一分区的用户ID（整批只加一次锁）
+     * @param partition 分区编号（调用方需保证ids均属于该分区）
+     * @param ids ID数组
+     * @param length 有效长度
+     * @return 本批次中新增（此前不存在）的ID数量
+     */
+    public long addAllIfAbsent(int partition, long[] ids, int length) {
+        BloomFilter filter = partitions[partition];
+        long added = 0;
+        synchronized (filter) {
+            for (int i = 0; i < length; i++) {
+                if (!filter.contains(ids[i])) {
+                    filter.add(ids[i]);
+                    added++;
+                }
+            }
+        }
+        return added;
+    }
+
+    /**
+     * 判断用户ID是否存在（可能存在误判）
+     */
+    public boolean contains(long userId) {
+        BloomFilter filter = partitions[partitionOf(userId)];
+        synchronized (filter) {
+            return filter.contains(userId);
+        }
+    }
+
+    /**
+     * 获取子布隆过滤器的误判率（各分区参数相同）
+     */
+    public double getActualFalsePositiveProbability() {
+        return partitions[0].getActualFalsePositiveProbability();
+    }
+}
@@ -1,22 +1,40 @@
 package com.good.job.interview.chapter2;
 
+import com.good.job.interview.CompressedIO;
+import com.good.job.interview.IdBytesParser;
+import com.good.job.interview.MappedLineReader;
+
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.RandomAccessFile;
-import java.nio.MappedByteBuffer;
+import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * 分片UV统计工具类
- * 核心逻辑：MMap读取分片文件 + 布隆过滤器去重统计
+ * 核心逻辑：异步预读分片文件（超大分片按段并行MMap读取） + 布隆过滤器去重统计
  */
 public class ShardUVStatisticsUtil {
     // 每个分片的预计最大用户ID数量（1亿）
     private static final long EXPECTED_INSERTIONS_PER_SHARD = 100_000_000L;
     // 可接受的误判率（1%）
     private static final double FALSE_POSITIVE_PROBABILITY = 0.01;
+    // 并行统计时布隆过滤器的分区数量（分区越多，线程间锁竞争越少）
+    private static final int BLOOM_PARTITION_COUNT = 64;
+    // 并行统计时每个分区的批量写入大小（攒满一批再加锁写入）
+    private static final int PARTITION_BATCH_SIZE = 1024;
+    // 对齐换行符时每次读取的字节数
+    private static final int ALIGN_READ_SIZE = 4096;
+    // 宽ID低位段的进制（10^18，见IdBytesParser.parseWide）
+    private static final long WIDE_LOW_BASE = 1_000_000_000_000_000_000L;
 
     /**
      * 统计单个分片的UV数量
@@ -24,6 +42,16 @@ public class ShardUVStatisticsUtil {
      * @return 分片UV数量（含可能的误判）
      */
     public static long statisticsShardUV(String shardFilePath) throws IOException {
+        return statisticsShard(shardFilePath, 0).getUV();
+    }
+
+    /**
+     * 一遍扫描统计单个分片的UV数量，k大于0时在同一遍扫描中统计高频ID（Count-Min Sketch + 候选堆，固定内存）
+     * @param shardFilePath 分片文件路径
+     * @param k 需要输出的高频ID数量（0表示不统计）
+     * @return 分片UV数量和分片内出现次数最多的K个ID（分片按ID哈希拆分，各分片的Top-K直接合并即为全局Top-K）
+     */
+    public static UVStatistics statisticsShard(String shardFilePath, int k) throws IOException {
         File shardFile = new File(shardFilePath);
         if (!shardFile.exists()) {
             throw new FileNotFoundException("分片文件不存在：" + shardFilePath);
@@ -33,47 +61,212 @@ public class ShardUVStatisticsUtil {
         BloomFilter bloomFilter = new BloomFilter(EXPECTED_INSERTIONS_PER_SHARD, FALSE_POSITIVE_PROBABILITY);
         // 原子类计数（确保线程安全，支持后续并发统计）
         AtomicLong uvCount = new AtomicLong(0);
+        TopKFrequencyCounter counter = k > 0 ? new TopKFrequencyCounter(k) : null;
+        long[] parsed = new long[2];
+
+        // 普通文件由I/O线程异步预读（解析与磁盘读取重叠），gzip压缩文件边解压边解析
+        CompressedIO.readLines(shardFile, (buf, start, end) -> {
+            // 解析一行用户ID
+            long userId = parseUserId(buf, start, end, counter, parsed);
+            if (userId != IdBytesParser.EMPTY) {
+                // 布隆过滤器判断：不存在则计数+1并添加到过滤器
+                if (!bloomFilter.contains(userId)) {
+                    uvCount.incrementAndGet();
+                    bloomFilter.add(userId);
+                }
+            }
+        });
+
+        System.out.println("分片文件：" + shardFilePath + "，UV数量：" + uvCount.get() + "，实际误判率：" + bloomFilter.getActualFalsePositiveProbability());
+        return new UVStatistics(uvCount.get(), counter == null ? null : counter.topK(k));
+    }
+
+    /**
+     * 解析一行用户ID；开启高频统计时按宽ID解析（保证20位用户ID能原样输出）并计入高频统计
+     * @return 与IdBytesParser.parseLong相同的64位ID（超过19位按2^64取模），空行返回EMPTY
+     */
+    private static long parseUserId(ByteBuffer buf, int start, int end, TopKFrequencyCounter counter, long[] parsed) {
+        if (counter == null) {
+            return IdBytesParser.parseLong(buf, start, end);
+        }
+        if (!IdBytesParser.parseWide(buf, start, end, parsed)) {
+            return IdBytesParser.EMPTY;
+        }
+        counter.offer(parsed[0], parsed[1]);
+        return parsed[0] * WIDE_LOW_BASE + parsed[1];
+    }
+
+    /**
+     * 并行统计单个分片的UV数量（适用于数据倾斜导致的超大分片）
+     * 核心逻辑：按换行符对齐将分片切成多段，每段由一个线程通过滑动窗口MMap解析，
+     * 解析出的ID按哈希分区攒批写入共享的分区布隆过滤器，最后累加各段新增数量
+     *
+     * @param shardFilePath 分片文件路径
+     * @param parallelism 并行度（切分段数）
+     * @return 分片UV数量（含可能的误判）
+     */
+    public static long statisticsShardUVParallel(String shardFilePath, int parallelism) throws IOException {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("并行度必须大于0：" + parallelism);
+        }
+        ExecutorService segmentExecutor = Executors.newFixedThreadPool(parallelism);
+        try {
+            return statisticsShardUVParallel(shardFilePath, parallelism, segmentExecutor);
+        } finally {
+            segmentExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * 并行统计单个分片的UV数量，分段任务提交到调用方提供的线程池
+     * （多个超大分片同时统计时共用一个线程池，总线程数不会随超大分片数量成倍增长）
+     *
+     * @param shardFilePath 分片文件路径
+     * @param parallelism 切分段数
+     * @param segmentExecutor 执行分段统计的线程池（不会被关闭）
+     * @return 分片UV数量（含可能的误判）
+     */
+    public static long statisticsShardUVParallel(String shardFilePath, int parallelism,
+                                                 ExecutorService segmentExecutor) throws IOException {
+        return statisticsShardParallel(shardFilePath, parallelism, 0, segmentExecutor).getUV();
+    }
+
+    /**
+     * 并行统计单个分片的UV数量，k大于0时各段在同一遍扫描中统计高频ID，结束后合并各段的统计器
+     *
+     * @param shardFilePath 分片文件路径
+     * @param parallelism 切分段数
+     * @param k 需要输出的高频ID数量（0表示不统计）
+     * @param segmentExecutor 执行分段统计的线程池（不会被关闭）
+     * @return 分片UV数量和分片内出现次数最多的K个ID
+     */
+    public static UVStatistics statisticsShardParallel(String shardFilePath, int parallelism, int k,
+                                                       ExecutorService segmentExecutor) throws IOException {
+        File shardFile = new File(shardFilePath);
+        if (!shardFile.exists()) {
+            throw new FileNotFoundException("分片文件不存在：" + shardFilePath);
+        }
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("并行度必须大于0：" + parallelism);
+        }
+        // 压缩文件无法按偏移量切分，退化为顺序统计（解压已在后台线程流水线进行）
+        if (CompressedIO.isCompressed(shardFile)) {
+            return statisticsShard(shardFilePath, k);
+        }
+
+        PartitionedBloomFilter bloomFilter = new PartitionedBloomFilter(
+                EXPECTED_INSERTIONS_PER_SHARD, FALSE_POSITIVE_PROBABILITY, BLOOM_PARTITION_COUNT);
+        AtomicLong uvCount = new AtomicLong(0);
 
-        // 使用MMap映射文件，提升IO效率
+        List<Future<TopKFrequencyCounter>> futures = new ArrayList<>();
+        TopKFrequencyCounter counter = null;
         try (RandomAccessFile raf = new RandomAccessFile(shardFile, "r");
              FileChannel channel = raf.getChannel()) {
-            MappedByteBuffer mbb = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
-
-            // 读取MMap中的数据（按行解析用户ID）
-            StringBuilder sb = new StringBuilder();
-            while (mbb.hasRemaining()) {
-                byte b = mbb.get();
-                if (b == '\n' || b == '\r') {
-                    // 解析一行用户ID
-                    String userIdStr = sb.toString().trim();
-                    if (!userIdStr.isEmpty()) {
-                        long userId = Long.parseLong(userIdStr);
-                        // 布隆过滤器判断：不存在则计数+1并添加到过滤器
-                        if (!bloomFilter.contains(userId)) {
-                            uvCount.incrementAndGet();
-                            bloomFilter.add(userId);
-                        }
-                    }
-                    sb.setLength(0);
-                } else {
-                    sb.append((char) b);
+            long[] boundaries = splitByLine(channel, parallelism);
+
+            for (int i = 0; i < boundaries.length - 1; i++) {
+                long start = boundaries[i];
+                long end = boundaries[i + 1];
+                if (start == end) {
+                    continue;
+                }
+                futures.add(segmentExecutor.submit(() -> {
+                    // 每段一个高频统计器（每个约10MB），避免多线程竞争
+                    TopKFrequencyCounter segmentCounter = k > 0 ? new TopKFrequencyCounter(k) : null;
+                    uvCount.addAndGet(countSegment(channel, start, end, bloomFilter, segmentCounter));
+                    return segmentCounter;
+                }));
+            }
+            for (Future<TopKFrequencyCounter> future : futures) {
+                TopKFrequencyCounter segmentCounter = future.get();
+                if (counter == null) {
+                    counter = segmentCounter;
+                } else if (segmentCounter != null) {
+                    counter.merge(segmentCounter);
                 }
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("分片并行统计中断：" + shardFilePath, e);
+        } catch (ExecutionException e) {
+            throw new IOException("分片并行统计失败：" + shardFilePath, e.getCause());
+        } finally {
+            // 出错时取消本分片尚未完成的分段（线程池由调用方管理）
+            for (Future<TopKFrequencyCounter> future : futures) {
+                future.cancel(true);
+            }
+        }
+
+        System.out.println("分片文件（并行" + parallelism + "）：" + shardFilePath + "，UV数量：" + uvCount.get() + "，实际误判率：" + bloomFilter.getActualFalsePositiveProbability());
+        return new UVStatistics(uvCount.get(), counter == null ? null : counter.topK(k));
+    }
 
-            // 处理最后一行（无换行符的情况）
-            if (sb.length() > 0) {
-                String userIdStr = sb.toString().trim();
-                if (!userIdStr.isEmpty()) {
-                    long userId = Long.parseLong(userIdStr);
-                    if (!bloomFilter.contains(userId)) {
-                        uvCount.incrementAndGet();
-                        bloomFilter.add(userId);
-                    }
+    /**
+     * 统计一段[start, end)区间内的新增UV（区间两端均已按行对齐）
+     */
+    private static long countSegment(FileChannel channel, long start, long end, PartitionedBloomFilter bloomFilter,
+                                     TopKFrequencyCounter counter) throws IOException {
+        int partitionCount = bloomFilter.getPartitionCount();
+        // 每个分区一个本地批次缓冲区，攒满后整批写入，减少加锁次数
+        long[][] batches = new long[partitionCount][PARTITION_BATCH_SIZE];
+        int[] batchSizes = new int[partitionCount];
+        AtomicLong added = new AtomicLong(0);
+
+        long[] parsed = new long[2];
+        MappedLineReader.readLines(channel, start, end, (buf, lineStart, lineEnd) -> {
+            long userId = parseUserId(buf, lineStart, lineEnd, counter, parsed);
+            if (userId != IdBytesParser.EMPTY) {
+                int partition = bloomFilter.partitionOf(userId);
+                batches[partition][batchSizes[partition]++] = userId;
+                if (batchSizes[partition] == PARTITION_BATCH_SIZE) {
+                    added.addAndGet(bloomFilter.addAllIfAbsent(partition, batches[partition], PARTITION_BATCH_SIZE));
+                    batchSizes[partition] = 0;
                 }
             }
+        });
+
+        for (int partition = 0; partition < partitionCount; partition++) {
+            if (batchSizes[partition] > 0) {
+                added.addAndGet(bloomFilter.addAllIfAbsent(partition, batches[partition], batchSizes[partition]));
+            }
         }
+        return added.get();
+    }
 
-        System.out.println("分片文件：" + shardFilePath + "，UV数量：" + uvCount.get() + "，实际误判率：" + bloomFilter.getActualFalsePositiveProbability());
-        return uvCount.get();
+    /**
+     * 将文件按字节均分为segments段，并把每个切分点后移到下一行开头，保证每行只属于一个段
+     * @return 长度为segments+1的边界数组，第i段为[boundaries[i], boundaries[i+1])
+     */
+    static long[] splitByLine(FileChannel channel, int segments) throws IOException {
+        long size = channel.size();
+        long[] boundaries = new long[segments + 1];
+        boundaries[segments] = size;
+        ByteBuffer buf = ByteBuffer.allocate(ALIGN_READ_SIZE);
+        for (int i = 1; i < segments; i++) {
+            long pos = Math.max(size / segments * i, boundaries[i - 1]);
+            // 从切分点前一个字节开始找换行符：若前一个字节恰好是换行符，切分点无需移动
+            pos = pos == 0 ? 0 : nextLineStart(channel, pos - 1, size, buf);
+            boundaries[i] = pos;
+        }
+        return boundaries;
+    }
+
+    /**
+     * 从pos开始查找第一个换行符，返回其后一个位置；找不到时返回文件末尾
+     */
+    private static long nextLineStart(FileChannel channel, long pos, long size, ByteBuffer buf) throws IOException {
+        while (pos < size) {
+            buf.clear();
+            int read = channel.read(buf, pos);
+            if (read <= 0) {
+                break;
+            }
+            int index = IdBytesParser.indexOfNewline(buf, 0, read);
+            if (index >= 0) {
+                return pos + index + 1;
+            }
+            pos += read;
+        }
+        return size;
     }
 }
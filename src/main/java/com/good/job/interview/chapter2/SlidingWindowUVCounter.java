@@ -0,0 +1,105 @@
+package com.good.job.interview.chapter2;
+
+/**
+ * 滑动时间窗口UV统计（如最近1小时 / 1天 / 7天）
+ * 核心逻辑：按事件时间把时间轴切成固定长度的桶，每个桶一个HyperLogLog，桶按环形数组复用；
+ * 新事件只更新所在桶（O(1)），桶号超出环形范围时惰性清空复用，查询时合并窗口内的桶得到UV。
+ * 内存只与桶数量有关（桶数量 * 2^precision 字节），与事件量无关；非线程安全，单线程消费事件流
+ */
+public class SlidingWindowUVCounter {
+    // 空桶的桶号标记
+    private static final long EMPTY_BUCKET = Long.MIN_VALUE;
+
+    // 单个桶的时间长度（毫秒）
+    private final long bucketMillis;
+    // 环形桶
+    private final HyperLogLog[] buckets;
+    // 每个槽位当前存放的桶号（时间戳 / bucketMillis）
+    private final long[] bucketIds;
+    // 查询时合并用的临时HLL（复用，避免每次查询分配内存）
+    private final HyperLogLog merged;
+    // 已见过的最新桶号（窗口以它为终点）
+    private long latestBucketId = EMPTY_BUCKET;
+    // 早于环形范围被丢弃的迟到事件数量
+    private long droppedCount;
+
+    /**
+     * 构造函数
+     * @param bucketMillis 单个桶的时间长度（毫秒），即窗口的最小粒度
+     * @param bucketCount 桶数量，bucketMillis * bucketCount 为可查询的最大窗口
+     * @param precision 每个桶HyperLogLog的精度（4-18）
+     */
+    public SlidingWindowUVCounter(long bucketMillis, int bucketCount, int precision) {
+        if (bucketMillis <= 0 || bucketCount <= 0) {
+            throw new IllegalArgumentException("桶时长和桶数量必须大于0：" + bucketMillis + " / " + bucketCount);
+        }
+        this.bucketMillis = bucketMillis;
+        this.buckets = new HyperLogLog[bucketCount];
+        this.bucketIds = new long[bucketCount];
+        for (int i = 0; i < bucketCount; i++) {
+            buckets[i] = new HyperLogLog(precision);
+            bucketIds[i] = EMPTY_BUCKET;
+        }
+        this.merged = new HyperLogLog(precision);
+    }
+
+    /**
+     * 添加一个事件
+     * @param timestampMillis 事件时间（毫秒时间戳）
+     * @param userId 用户ID
+     * @return false表示事件早于环形范围（过期的迟到事件），已丢弃
+     */
+    public boolean add(long timestampMillis, long userId) {
+        long bucketId = Math.floorDiv(timestampMillis, bucketMillis);
+        if (bucketId > latestBucketId) {
+            latestBucketId = bucketId;
+        } else if (bucketId <= latestBucketId - buckets.length) {
+            droppedCount++;
+            return false;
+        }
+        int slot = (int) Math.floorMod(bucketId, (long) buckets.length);
+        if (bucketIds[slot] != bucketId) {
+            // 槽位中是已过期的旧桶：清空后复用
+            buckets[slot].clear();
+            bucketIds[slot] = bucketId;
+        }
+        buckets[slot].add(userId);
+        return true;
+    }
+
+    /**
+     * 估计最近一段时间的UV（以已见过的最新事件所在桶为终点，按桶粒度向上取整）
+     * @param windowMillis 窗口长度（毫秒），不能超过 桶时长 * 桶数量
+     */
+    public long estimate(long windowMillis) {
+        long windowBuckets = (windowMillis + bucketMillis - 1) / bucketMillis;
+        if (windowBuckets <= 0 || windowBuckets > buckets.length) {
+            throw new IllegalArgumentException("窗口长度必须在(0, " + bucketMillis * buckets.length + "]毫秒之间：" + windowMillis);
+        }
+        merged.clear();
+        for (int i = 0; i < buckets.length; i++) {
+            if (bucketIds[i] != EMPTY_BUCKET && bucketIds[i] > latestBucketId - windowBuckets) {
+                merged.merge(buckets[i]);
+            }
+        }
+        return merged.cardinality();
+    }
+
+    /**
+     * 已见过的最新事件所在桶的起始时间（毫秒），尚无事件时返回-1
+     */
+    public long getLatestBucketStart() {
+        return latestBucketId == EMPTY_BUCKET ? -1 : latestBucketId * bucketMillis;
+    }
+
+    public long getDroppedCount() {
+        return droppedCount;
+    }
+
+    /**
+     * 获取所有桶占用的内存大小（字节）
+     */
+    public long getMemorySize() {
+        return buckets.length * buckets[0].getMemorySize();
+    }
+}
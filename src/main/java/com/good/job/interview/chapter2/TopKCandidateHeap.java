@@ -0,0 +1,247 @@
+package com.good.job.interview.chapter2;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 高频ID候选堆（固定内存）
+ * 核心原理：只保留频率估计值（由Count-Min Sketch给出，见TopKFrequencyCounter）最大的capacity个ID；
+ * 新ID到来且堆已满时，估计值大于当前最小值才替换堆顶。结果的准确性取决于估计值，本身不提供误差保证
+ * 实现：候选ID按估计值组织成基本类型小顶堆，配合开放寻址索引表实现O(1)查找、O(log capacity)更新
+ */
+public class TopKCandidateHeap {
+    // 候选ID容量
+    private final int capacity;
+    // 小顶堆：ID高位段、低位段、估计值
+    private final long[] his;
+    private final long[] los;
+    private final long[] counts;
+    // 每个堆位置对应的索引表槽位
+    private final int[] slotOf;
+    private int size;
+
+    // 索引表：槽位中存放 堆位置+1，0表示空槽位
+    private final int[] slots;
+    private final int slotMask;
+
+    /**
+     * 构造函数
+     * @param capacity 候选ID数量（一般取K的若干倍，越大结果越准确）
+     */
+    public TopKCandidateHeap(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("候选ID数量必须大于0：" + capacity);
+        }
+        this.capacity = capacity;
+        this.his = new long[capacity];
+        this.los = new long[capacity];
+        this.counts = new long[capacity];
+        this.slotOf = new int[capacity];
+        // 索引表负载因子不超过0.5
+        int tableSize = Integer.highestOneBit(capacity * 2 - 1) << 1;
+        this.slots = new int[tableSize];
+        this.slotMask = tableSize - 1;
+    }
+
+    /**
+     * 按外部给出的频率估计值（如Count-Min Sketch）更新ID：已保留时估计值取较大值，
+     * 未保留时若堆未满或估计值大于当前最小估计值则替换堆顶的ID
+     */
+    public void offerEstimate(long hi, long lo, long estimate) {
+        int slot = findSlot(hi, lo);
+        if (slots[slot] != 0) {
+            int pos = slots[slot] - 1;
+            if (estimate > counts[pos]) {
+                counts[pos] = estimate;
+                siftDown(pos);
+            }
+            return;
+        }
+        if (size < capacity) {
+            int pos = size++;
+            his[pos] = hi;
+            los[pos] = lo;
+            counts[pos] = estimate;
+            slots[slot] = pos + 1;
+            slotOf[pos] = slot;
+            siftUp(pos);
+            return;
+        }
+        if (estimate <= counts[0]) {
+            return;
+        }
+        deleteSlot(slotOf[0]);
+        slot = findSlot(hi, lo);
+        his[0] = hi;
+        los[0] = lo;
+        counts[0] = estimate;
+        slots[slot] = 1;
+        slotOf[0] = slot;
+        siftDown(0);
+    }
+
+    /**
+     * 导出当前保留的所有候选ID（无序，误差上界记为0，由估计方给出）
+     */
+    public List<Entry> entries() {
+        List<Entry> result = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            result.add(new Entry(his[i], los[i], counts[i], 0));
+        }
+        return result;
+    }
+
+    /**
+     * 合并多组Top-K结果：相同ID的计数和误差分别相加，再取计数最大的K个
+     * （UV分片按ID哈希拆分，同一ID只会出现在一个分片中，合并结果与全局统计一致）
+     */
+    public static List<Entry> merge(Collection<List<Entry>> entryLists, int k) {
+        Map<String, Entry> merged = new HashMap<>();
+        for (List<Entry> entries : entryLists) {
+            for (Entry entry : entries) {
+                merged.merge(entry.getId(), entry, (a, b) ->
+                        new Entry(a.hi, a.lo, a.count + b.count, a.error + b.error));
+            }
+        }
+        return sortAndLimit(new ArrayList<>(merged.values()), k);
+    }
+
+    private static List<Entry> sortAndLimit(List<Entry> entries, int k) {
+        entries.sort((a, b) -> Long.compare(b.count, a.count));
+        return new ArrayList<>(entries.subList(0, Math.min(k, entries.size())));
+    }
+
+    /**
+     * 查找ID所在槽位，不存在时返回应插入的空槽位
+     */
+    private int findSlot(long hi, long lo) {
+        int slot = (int) LongPairHashSet.hash(hi, lo) & slotMask;
+        while (slots[slot] != 0) {
+            int pos = slots[slot] - 1;
+            if (his[pos] == hi && los[pos] == lo) {
+                return slot;
+            }
+            slot = (slot + 1) & slotMask;
+        }
+        return slot;
+    }
+
+    /**
+     * 删除索引表槽位（线性探测的后移删除，保证后续查找不断链）
+     */
+    private void deleteSlot(int slot) {
+        int next = slot;
+        while (true) {
+            next = (next + 1) & slotMask;
+            if (slots[next] == 0) {
+                break;
+            }
+            int pos = slots[next] - 1;
+            int home = (int) LongPairHashSet.hash(his[pos], los[pos]) & slotMask;
+            // home不在(slot, next]区间内时，该元素可以前移到空出的slot
+            boolean stay = slot <= next ? (home > slot && home <= next) : (home > slot || home <= next);
+            if (!stay) {
+                slots[slot] = slots[next];
+                slotOf[pos] = slot;
+                slot = next;
+            }
+        }
+        slots[slot] = 0;
+    }
+
+    private void siftUp(int pos) {
+        while (pos > 0) {
+            int parent = (pos - 1) >>> 1;
+            if (counts[parent] <= counts[pos]) {
+                break;
+            }
+            swap(pos, parent);
+            pos = parent;
+        }
+    }
+
+    private void siftDown(int pos) {
+        while (true) {
+            int child = (pos << 1) + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && counts[child + 1] < counts[child]) {
+                child++;
+            }
+            if (counts[pos] <= counts[child]) {
+                break;
+            }
+            swap(pos, child);
+            pos = child;
+        }
+    }
+
+    private void swap(int a, int b) {
+        long tmp = his[a];
+        his[a] = his[b];
+        his[b] = tmp;
+        tmp = los[a];
+        los[a] = los[b];
+        los[b] = tmp;
+        tmp = counts[a];
+        counts[a] = counts[b];
+        counts[b] = tmp;
+        int slot = slotOf[a];
+        slotOf[a] = slotOf[b];
+        slotOf[b] = slot;
+        slots[slotOf[a]] = a + 1;
+        slots[slotOf[b]] = b + 1;
+    }
+
+    /**
+     * 单个高频ID的统计结果
+     */
+    public static class Entry {
+        // ID高位段、低位段（见IdBytesParser.parseWide）
+        private final long hi;
+        private final long lo;
+        // 计数（可能高估）
+        private final long count;
+        // 误差上界：真实次数在[count - error, count]之间
+        private final long error;
+
+        public Entry(long hi, long lo, long count, long error) {
+            this.hi = hi;
+            this.lo = lo;
+            this.count = count;
+            this.error = error;
+        }
+
+        public long getHi() {
+            return hi;
+        }
+
+        public long getLo() {
+            return lo;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getError() {
+            return error;
+        }
+
+        /**
+         * 十进制ID字符串
+         */
+        public String getId() {
+            return hi == 0 ? Long.toString(lo) : hi + String.format("%018d", lo);
+        }
+
+        @Override
+        public String toString() {
+            return getId() + "\t" + count + "\t±" + error;
+        }
+    }
+}
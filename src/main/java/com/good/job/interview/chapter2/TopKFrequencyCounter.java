@@ -0,0 +1,75 @@
+package com.good.job.interview.chapter2;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 高频ID统计器：Count-Min Sketch + 候选堆组合（一遍扫描、固定内存）
+ * Count-Min Sketch估计每个ID的频率，候选堆（TopKCandidateHeap按估计值驱动）保留估计值最大的capacity个ID；
+ * 每次出现都用累加后的估计值更新候选，高频ID不会因为后出现的低频ID挤占计数器而被淘汰，
+ * 只有当capacity个其他ID的估计值都超过它时才会落选（估计值只会高估，且高估不超过 epsilon * 总数量 的概率为 1 - delta）
+ */
+public class TopKFrequencyCounter {
+    // Count-Min Sketch相对误差（宽度 e / epsilon 约13.6万，向上取整为2的幂262144；5行long计数器共10MB）
+    private static final double CMS_EPSILON = 0.00002;
+    // Count-Min Sketch误差超出epsilon的概率
+    private static final double CMS_DELTA = 0.01;
+    // 候选ID数量相对K的倍数（为Count-Min Sketch高估留出余量）
+    private static final int CAPACITY_FACTOR = 10;
+
+    private final CountMinSketch sketch;
+    private final TopKCandidateHeap candidates;
+
+    /**
+     * 构造函数
+     * @param k 需要输出的高频ID数量
+     */
+    public TopKFrequencyCounter(int k) {
+        if (k <= 0) {
+            throw new IllegalArgumentException("K必须大于0：" + k);
+        }
+        this.sketch = new CountMinSketch(CMS_EPSILON, CMS_DELTA);
+        this.candidates = new TopKCandidateHeap(k * CAPACITY_FACTOR);
+    }
+
+    /**
+     * 统计ID出现1次（QQ号等64位以内的ID高位段传0）
+     */
+    public void offer(long hi, long lo) {
+        candidates.offerEstimate(hi, lo, sketch.addAndEstimate(hi, lo, 1));
+    }
+
+    /**
+     * 合并另一个统计器（如同一文件按段并行统计的各段结果）：Sketch计数相加，两边的候选按合并后的估计值重新筛选
+     */
+    public void merge(TopKFrequencyCounter other) {
+        sketch.merge(other.sketch);
+        for (TopKCandidateHeap.Entry entry : candidates.entries()) {
+            candidates.offerEstimate(entry.getHi(), entry.getLo(), sketch.estimate(entry.getHi(), entry.getLo()));
+        }
+        for (TopKCandidateHeap.Entry entry : other.candidates.entries()) {
+            candidates.offerEstimate(entry.getHi(), entry.getLo(), sketch.estimate(entry.getHi(), entry.getLo()));
+        }
+    }
+
+    /**
+     * 导出所有候选ID，计数取Count-Min Sketch的最终估计值，误差上界为 epsilon * 总数量（概率 1 - delta）
+     */
+    public List<TopKCandidateHeap.Entry> candidates() {
+        long errorBound = (long) Math.ceil(CMS_EPSILON * sketch.getTotalCount());
+        List<TopKCandidateHeap.Entry> result = new ArrayList<>();
+        for (TopKCandidateHeap.Entry entry : candidates.entries()) {
+            long count = sketch.estimate(entry.getHi(), entry.getLo());
+            result.add(new TopKCandidateHeap.Entry(entry.getHi(), entry.getLo(), count, Math.min(count - 1, errorBound)));
+        }
+        return result;
+    }
+
+    /**
+     * 获取出现次数最多的K个ID（按计数从大到小）
+     */
+    public List<TopKCandidateHeap.Entry> topK(int k) {
+        return TopKCandidateHeap.merge(Collections.singletonList(candidates()), k);
+    }
+}
@@ -1,16 +1,31 @@
 package com.good.job.interview.chapter2;
 
+import com.good.job.interview.CompressedIO;
+import com.good.job.interview.JobCheckpoint;
+
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.Future;
 
 /**
  * 总UV结果合并工具类
  */
 public class TotalUVMergeUtil {
     private static final ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+    // 超大分片阈值（512MB）：超过该大小的分片在分片内部再并行统计，避免数据倾斜时单个热点分片拖慢整体
+    private static final long OVERSIZED_SHARD_BYTES = 512L * 1024 * 1024;
+    // 超大分片内部的并行度（切分段数；所有超大分片的分段共用一个同样大小的线程池）
+    private static final int OVERSIZED_SHARD_PARALLELISM = Runtime.getRuntime().availableProcessors();
+    // 检查点中已完成分片UV的键前缀（后接分片文件名）
+    private static final String CHECKPOINT_SHARD_UV_PREFIX = "uv.shard.";
+    // 检查点中已完成分片Top-K的键前缀（后接分片文件名），值为 K;高位段:低位段:计数:误差,...
+    private static final String CHECKPOINT_SHARD_TOP_K_PREFIX = "uv.topk.shard.";
 
     /**
      * 合并所有分片的UV结果，得到总UV
@@ -18,39 +33,147 @@ public class TotalUVMergeUtil {
      * @return 总UV数量
      */
     public static long mergeTotalUV(String shardDir) throws InterruptedException {
-        File shardDirFile = new File(shardDir);
-        if (!shardDirFile.exists() || !shardDirFile.isDirectory()) {
-            throw new IllegalArgumentException("分片目录不存在或不是目录：" + shardDir);
-        }
+        return mergeTotalUV(shardDir, null);
+    }
 
-        File[] shardFiles = shardDirFile.listFiles((dir, name) -> name.startsWith("shard_") && name.endsWith(".txt"));
-        if (shardFiles == null || shardFiles.length == 0) {
-            throw new IllegalArgumentException("分片目录中无分片文件：" + shardDir);
-        }
+    /**
+     * 合并所有分片的UV结果，支持断点续跑
+     * @param shardDir 分片文件存储目录
+     * @param checkpoint 任务检查点（为null时不记录进度）
+     * @return 总UV数量
+     */
+    public static long mergeTotalUV(String shardDir, JobCheckpoint checkpoint) throws InterruptedException {
+        return mergeShards(shardDir, checkpoint, 0).getUV();
+    }
 
-        // 原子类存储总UV（支持并发累加）
-        AtomicLong totalUV = new AtomicLong(0);
+    /**
+     * 一遍扫描所有分片，合并得到总UV；k大于0时同一遍扫描中统计各分片的高频ID并合并为全局Top-K
+     * （分片按ID哈希拆分，同一ID只会出现在一个分片中，各分片的Top-K直接合并即可）
+     *
+     * 断点续跑：每个分片统计完成后把分片UV（和Top-K）写入检查点；重新运行时已完成的分片直接取检查点中的结果，只统计剩余分片。
+     * 任一分片统计失败时抛出异常，已完成分片的进度保留在检查点中，修复后重新运行只统计剩余分片
+     *
+     * @param shardDir 分片文件存储目录
+     * @param checkpoint 任务检查点（为null时不记录进度）
+     * @param k 需要输出的高频ID数量（0表示不统计）
+     * @return 总UV数量和全局出现次数最多的K个ID
+     */
+    public static UVStatistics mergeShards(String shardDir, JobCheckpoint checkpoint, int k) throws InterruptedException {
+        File[] shardFiles = listShardFiles(shardDir);
+        Map<String, Long> completedShards = checkpoint == null
+                ? Collections.emptyMap() : checkpoint.getLongs(CHECKPOINT_SHARD_UV_PREFIX);
 
-        // 并发处理所有分片的UV统计并累加
+        long totalUV = 0;
+        List<List<TopKCandidateHeap.Entry>> shardTopKs = new ArrayList<>();
+        // 超大分片的分段统计共用一个线程池：同时有多个超大分片时总线程数仍为 2 * CPU核数，而不是 CPU核数^2
+        ExecutorService segmentExecutor = Executors.newFixedThreadPool(OVERSIZED_SHARD_PARALLELISM);
+
+        // 并发处理所有分片的统计
+        List<File> submittedShards = new ArrayList<>();
+        List<Future<UVStatistics>> futures = new ArrayList<>();
         for (File shardFile : shardFiles) {
-            executor.submit(() -> {
+            Long completedUV = completedShards.get(shardFile.getName());
+            List<TopKCandidateHeap.Entry> completedTopK = k > 0 && completedUV != null
+                    ? decodeTopK(checkpoint.getString(CHECKPOINT_SHARD_TOP_K_PREFIX + shardFile.getName()), k) : null;
+            // 开启高频统计时，检查点中还需有相同K的Top-K结果，否则重新统计该分片
+            if (completedUV != null && (k == 0 || completedTopK != null)) {
+                System.out.println("分片文件：" + shardFile.getName() + "，已在检查点中完成，UV数量：" + completedUV);
+                totalUV += completedUV;
+                if (completedTopK != null) {
+                    shardTopKs.add(completedTopK);
+                }
+                continue;
+            }
+            submittedShards.add(shardFile);
+            futures.add(executor.submit(() -> {
+                UVStatistics shardStatistics = shardFile.length() > OVERSIZED_SHARD_BYTES
+                        ? ShardUVStatisticsUtil.statisticsShardParallel(
+                                shardFile.getAbsolutePath(), OVERSIZED_SHARD_PARALLELISM, k, segmentExecutor)
+                        : ShardUVStatisticsUtil.statisticsShard(shardFile.getAbsolutePath(), k);
+                if (checkpoint != null) {
+                    if (k > 0) {
+                        checkpoint.setString(CHECKPOINT_SHARD_TOP_K_PREFIX + shardFile.getName(),
+                                encodeTopK(shardStatistics.getTopK(), k));
+                    }
+                    checkpoint.setLong(CHECKPOINT_SHARD_UV_PREFIX + shardFile.getName(), shardStatistics.getUV());
+                    checkpoint.save();
+                }
+                return shardStatistics;
+            }));
+        }
+
+        // 逐个等待分片结果：任一分片失败时取消其余分片并抛出异常，不返回少算的总UV
+        try {
+            for (int i = 0; i < futures.size(); i++) {
                 try {
-                    long shardUV = ShardUVStatisticsUtil.statisticsShardUV(shardFile.getAbsolutePath());
-                    totalUV.addAndGet(shardUV);
-                } catch (Exception e) {
-                    throw new RuntimeException("分片UV统计失败：" + shardFile.getName(), e);
+                    UVStatistics shardStatistics = futures.get(i).get();
+                    totalUV += shardStatistics.getUV();
+                    shardTopKs.add(shardStatistics.getTopK());
+                } catch (ExecutionException e) {
+                    executor.shutdownNow();
+                    throw new RuntimeException("分片UV统计失败：" + submittedShards.get(i).getName(), e.getCause());
                 }
-            });
+            }
+        } finally {
+            executor.shutdown();
+            segmentExecutor.shutdownNow();
         }
 
-        // 关闭线程池，等待所有任务完成
-        executor.shutdown();
-        if (!executor.awaitTermination(1, TimeUnit.HOURS)) {
-            executor.shutdownNow();
-            throw new RuntimeException("UV合并任务超时");
+        return new UVStatistics(totalUV, k > 0 ? TopKCandidateHeap.merge(shardTopKs, k) : null);
+    }
+
+    /**
+     * 分片Top-K编码为检查点中的字符串：K;高位段:低位段:计数:误差,...
+     */
+    private static String encodeTopK(List<TopKCandidateHeap.Entry> entries, int k) {
+        StringBuilder sb = new StringBuilder().append(k).append(';');
+        for (int i = 0; i < entries.size(); i++) {
+            TopKCandidateHeap.Entry entry = entries.get(i);
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(entry.getHi()).append(':').append(entry.getLo()).append(':')
+                    .append(entry.getCount()).append(':').append(entry.getError());
         }
+        return sb.toString();
+    }
 
-        return totalUV.get();
+    /**
+     * 解析检查点中的分片Top-K，不存在或K不一致时返回null
+     */
+    private static List<TopKCandidateHeap.Entry> decodeTopK(String value, int k) {
+        if (value == null) {
+            return null;
+        }
+        int separator = value.indexOf(';');
+        if (separator < 0 || Integer.parseInt(value.substring(0, separator)) != k) {
+            return null;
+        }
+        List<TopKCandidateHeap.Entry> entries = new ArrayList<>();
+        if (separator + 1 < value.length()) {
+            for (String item : value.substring(separator + 1).split(",")) {
+                String[] fields = item.split(":");
+                entries.add(new TopKCandidateHeap.Entry(Long.parseLong(fields[0]), Long.parseLong(fields[1]),
+                        Long.parseLong(fields[2]), Long.parseLong(fields[3])));
+            }
+        }
+        return entries;
     }
 
+    /**
+     * 列出分片目录下的所有分片文件
+     */
+    private static File[] listShardFiles(String shardDir) {
+        File shardDirFile = new File(shardDir);
+        if (!shardDirFile.exists() || !shardDirFile.isDirectory()) {
+            throw new IllegalArgumentException("分片目录不存在或不是目录：" + shardDir);
+        }
+
+        File[] shardFiles = shardDirFile.listFiles((dir, name) -> name.startsWith("shard_")
+                && (name.endsWith(".txt") || name.endsWith(".txt" + CompressedIO.GZIP_SUFFIX)));
+        if (shardFiles == null || shardFiles.length == 0) {
+            throw new IllegalArgumentException("分片目录中无分片文件：" + shardDir);
+        }
+        return shardFiles;
+    }
 }
@@ -0,0 +1,31 @@
+package com.good.job.interview.chapter2;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 一遍扫描得到的UV统计结果：UV数量 + 可选的高频ID（未开启高频统计时为空列表）
+ */
+public class UVStatistics {
+    private final long uv;
+    private final List<TopKCandidateHeap.Entry> topK;
+
+    public UVStatistics(long uv, List<TopKCandidateHeap.Entry> topK) {
+        this.uv = uv;
+        this.topK = topK == null ? Collections.emptyList() : topK;
+    }
+
+    /**
+     * UV数量（含布隆过滤器可能的误判）
+     */
+    public long getUV() {
+        return uv;
+    }
+
+    /**
+     * 出现次数最多的K个ID（按计数从大到小）
+     */
+    public List<TopKCandidateHeap.Entry> getTopK() {
+        return topK;
+    }
+}
@@ -0,0 +1,256 @@
+package com.good.job.interview.chapter2;
+
+import com.good.job.interview.CompressedIO;
+import com.good.job.interview.IdBytesParser;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 用户ID集合运算工具类（交集 / 并集 / 差集 / 留存，适配20位等超出BitMap范围的ID）
+ * 核心逻辑：
+ * 1. 两个输入文件各顺序扫描一遍，按ID哈希拆分到N个二进制分片（相同ID必然落在同一分片）
+ * 2. 逐个分片加载为精确的基本类型哈希集合，分片内完成集合运算，结果流式写入输出文件
+ * 内存只受单个分片大小限制，结果精确（输出顺序为哈希顺序，不保证有序）
+ */
+public class UserIdSetOperations {
+    // 默认分片数量
+    private static final int DEFAULT_SHARD_COUNT = 64;
+
+    /**
+     * 集合运算类型
+     */
+    public enum Operation {
+        /** 交集：A和B中都出现的ID */
+        INTERSECT,
+        /** 并集：A或B中出现过的ID */
+        UNION,
+        /** 差集：在A中但不在B中的ID */
+        DIFFERENCE
+    }
+
+    /**
+     * 集合运算统计结果
+     */
+    public static class SetStatistics {
+        // A的唯一ID数量
+        private final long sizeA;
+        // B的唯一ID数量
+        private final long sizeB;
+        // 交集数量
+        private final long intersection;
+
+        SetStatistics(long sizeA, long sizeB, long intersection) {
+            this.sizeA = sizeA;
+            this.sizeB = sizeB;
+            this.intersection = intersection;
+        }
+
+        public long getSizeA() {
+            return sizeA;
+        }
+
+        public long getSizeB() {
+            return sizeB;
+        }
+
+        public long getIntersection() {
+            return intersection;
+        }
+
+        public long getUnion() {
+            return sizeA + sizeB - intersection;
+        }
+
+        public long getDifference() {
+            return sizeA - intersection;
+        }
+
+        /**
+         * 留存率：A中的ID在B中再次出现的比例（A为昨天，B为今天）
+         */
+        public double getRetention() {
+            return sizeA == 0 ? 0 : (double) intersection / sizeA;
+        }
+
+        /**
+         * 指定运算的结果数量
+         */
+        public long count(Operation operation) {
+            switch (operation) {
+                case INTERSECT:
+                    return getIntersection();
+                case UNION:
+                    return getUnion();
+                default:
+                    return getDifference();
+            }
+        }
+    }
+
+    // 分片数量
+    private final int shardCount;
+    // 临时分片文件存储目录
+    private final File tempDir;
+
+    public UserIdSetOperations(String tempDir) {
+        this(tempDir, DEFAULT_SHARD_COUNT);
+    }
+
+    /**
+     * 构造函数
+     * @param tempDir 临时分片文件存储目录（会自动创建）
+     * @param shardCount 分片数量，单个分片的两个集合需能放入内存
+     */
+    public UserIdSetOperations(String tempDir, int shardCount) {
+        if (shardCount <= 0) {
+            throw new IllegalArgumentException("分片数量必须大于0：" + shardCount);
+        }
+        this.tempDir = new File(tempDir);
+        this.shardCount = shardCount;
+    }
+
+    /**
+     * 执行集合运算
+     * @param fileA 输入文件A（每行一个ID）
+     * @param fileB 输入文件B（每行一个ID）
+     * @param operation 运算类型
+     * @param outputFile 结果输出文件；为null时只统计数量
+     * @return 统计结果（A、B的唯一数量与交集数量，可推出并集、差集、留存率）
+     */
+    public SetStatistics compute(String fileA, String fileB, Operation operation, String outputFile) throws IOException {
+        if (!tempDir.exists() && !tempDir.mkdirs()) {
+            throw new IOException("创建临时目录失败：" + tempDir);
+        }
+        Path workDir = Files.createTempDirectory(tempDir.toPath(), "set_shards_");
+        try {
+            // 步骤1：两个输入文件各扫描一遍，按哈希拆分到分片
+            Path[] shardsA = shard(fileA, workDir, "a");
+            Path[] shardsB = shard(fileB, workDir, "b");
+
+            // 步骤2：逐个分片做集合运算
+            long sizeA = 0;
+            long sizeB = 0;
+            long intersection = 0;
+            try (IdPairTextWriter writer = outputFile == null ? null : new IdPairTextWriter(outputFile)) {
+                for (int i = 0; i < shardCount; i++) {
+                    LongPairHashSet setA = load(shardsA[i]);
+                    LongPairHashSet setB = load(shardsB[i]);
+                    Files.deleteIfExists(shardsA[i]);
+                    Files.deleteIfExists(shardsB[i]);
+
+                    // 遍历较小的集合统计交集
+                    LongPairHashSet smaller = setA.size() <= setB.size() ? setA : setB;
+                    LongPairHashSet larger = smaller == setA ? setB : setA;
+                    AtomicLong shardIntersection = new AtomicLong(0);
+                    smaller.forEach((hi, lo) -> {
+                        if (larger.contains(hi, lo)) {
+                            shardIntersection.incrementAndGet();
+                        }
+                    });
+                    sizeA += setA.size();
+                    sizeB += setB.size();
+                    intersection += shardIntersection.get();
+
+                    if (writer != null) {
+                        writeShard(setA, setB, operation, writer);
+                    }
+                }
+            }
+
+            SetStatistics statistics = new SetStatistics(sizeA, sizeB, intersection);
+            System.out.println("集合运算完成：" + operation + "，A唯一数量：" + sizeA + "，B唯一数量：" + sizeB
+                    + "，交集数量：" + intersection + "，结果数量：" + statistics.count(operation));
+            return statistics;
+        } finally {
+            File[] files = workDir.toFile().listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    Files.deleteIfExists(file.toPath());
+                }
+            }
+            Files.deleteIfExists(workDir);
+        }
+    }
+
+    /**
+     * 将单个分片的运算结果写入输出文件
+     */
+    private static void writeShard(LongPairHashSet setA, LongPairHashSet setB, Operation operation, IdPairTextWriter writer) throws IOException {
+        switch (operation) {
+            case INTERSECT:
+                setA.forEach((hi, lo) -> {
+                    if (setB.contains(hi, lo)) {
+                        writer.write(hi, lo);
+                    }
+                });
+                break;
+            case UNION:
+                setA.forEach(writer::write);
+                setB.forEach((hi, lo) -> {
+                    if (!setA.contains(hi, lo)) {
+                        writer.write(hi, lo);
+                    }
+                });
+                break;
+            default:
+                setA.forEach((hi, lo) -> {
+                    if (!setB.contains(hi, lo)) {
+                        writer.write(hi, lo);
+                    }
+                });
+                break;
+        }
+    }
+
+    /**
+     * 顺序扫描输入文件，按ID哈希写入二进制分片文件
+     */
+    private Path[] shard(String inputFile, Path workDir, String prefix) throws IOException {
+        File file = new File(inputFile);
+        if (!file.exists()) {
+            throw new FileNotFoundException("输入文件不存在：" + inputFile);
+        }
+        Path[] shardFiles = new Path[shardCount];
+        IdPairFileWriter[] writers = new IdPairFileWriter[shardCount];
+        try {
+            for (int i = 0; i < shardCount; i++) {
+                shardFiles[i] = workDir.resolve(prefix + "_shard_" + i + ".bin");
+                writers[i] = new IdPairFileWriter(shardFiles[i]);
+            }
+            long[] parsed = new long[2];
+            CompressedIO.readLines(file, (buf, start, end) -> {
+                if (IdBytesParser.parseWide(buf, start, end, parsed)) {
+                    // 取哈希高32位选分片，与集合内部使用的低位槽位相互独立
+                    int shardIndex = (int) ((LongPairHashSet.hash(parsed[0], parsed[1]) >>> 32) % shardCount);
+                    writers[shardIndex].write(parsed[0], parsed[1]);
+                }
+            });
+        } finally {
+            for (IdPairFileWriter writer : writers) {
+                if (writer != null) {
+                    writer.close();
+                }
+            }
+        }
+        return shardFiles;
+    }
+
+    /**
+     * 加载单个二进制分片为精确哈希集合（自动去重）
+     */
+    private static LongPairHashSet load(Path shardFile) throws IOException {
+        int expectedSize = (int) Math.min(Integer.MAX_VALUE >> 2, Files.size(shardFile) / IdPairFileWriter.RECORD_BYTES);
+        LongPairHashSet set = new LongPairHashSet(expectedSize);
+        try (IdPairFileReader reader = new IdPairFileReader(shardFile)) {
+            while (reader.next()) {
+                set.add(reader.hi, reader.lo);
+            }
+        }
+        return set;
+    }
+}
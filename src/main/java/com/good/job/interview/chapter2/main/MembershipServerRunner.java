@@ -0,0 +1,145 @@
+package com.good.job.interview.chapter2.main;
+
+import com.good.job.interview.CompressedIO;
+import com.good.job.interview.IdBytesParser;
+import com.good.job.interview.MemoryMonitor;
+import com.good.job.interview.chapter1.BitMap;
+import com.good.job.interview.chapter1.MappedBitMapFile;
+import com.good.job.interview.chapter1.QQNumberDeduplicator;
+import com.good.job.interview.chapter1.QQSetOperations;
+import com.good.job.interview.chapter2.MembershipServer;
+import com.good.job.interview.chapter2.PartitionedBloomFilter;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 成员查询服务命令行入口
+ * 用法：MembershipServerRunner <qq|uid> <数据文件> [端口] [监听地址]
+ * 默认只监听本机回环地址；接口没有鉴权，确需对外提供服务时显式传入监听地址（如 0.0.0.0）
+ * qq：数据文件为QQ号文件（每行一个），或断点续跑去重完成后保存的完整位图文件
+ * （.bitmap，见QQNumberDeduplicator.deduplicateResumable的bitmapOutputFile；直接映射加载，退出时增量刷回实时添加的QQ号）；
+ * uid：数据文件为用户ID文件（每行一个），或上次退出时保存的布隆过滤器文件（.bloom）；
+ * 退出时把布隆过滤器（含实时添加的ID）保存到 .bloom 文件，下次启动可直接加载
+ * 示例：curl "http://127.0.0.1:8080/contains?id=123456789"
+ */
+public class MembershipServerRunner {
+    // ===================== 可配置参数 =====================
+    /** 默认监听端口 */
+    private static final int DEFAULT_PORT = 8080;
+    /** 处理请求的线程数 */
+    private static final int SERVER_THREADS = Runtime.getRuntime().availableProcessors() * 2;
+    /** 用户ID布隆过滤器预计容量（含实时添加） */
+    private static final long EXPECTED_USER_IDS = 200_000_000L;
+    /** 用户ID布隆过滤器误判率 */
+    private static final double FALSE_POSITIVE_PROBABILITY = 0.01;
+    /** 用户ID布隆过滤器分区数（分区越多，并发添加的锁竞争越小） */
+    private static final int BLOOM_PARTITION_COUNT = 64;
+    // =====================================================
+    private static final String BITMAP_FILE_SUFFIX = ".bitmap";
+    private static final String BLOOM_FILE_SUFFIX = ".bloom";
+
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.err.println("用法：MembershipServerRunner <qq|uid> <数据文件> [端口] [监听地址]");
+            System.exit(1);
+        }
+        String idType = args[0];
+        String dataFile = args[1];
+        int port = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_PORT;
+        String bindHost = args.length > 3 ? args[3] : null;
+
+        MappedBitMapFile mappedBitMap = null;
+        PartitionedBloomFilter bloomFilter = null;
+        File bloomFile = null;
+        try {
+            long startTime = System.currentTimeMillis();
+            MembershipServer.MembershipStore store;
+            if ("qq".equals(idType)) {
+                BitMap bitMap;
+                if (dataFile.endsWith(BITMAP_FILE_SUFFIX)) {
+                    if (!new File(dataFile).exists()) {
+                        throw new FileNotFoundException("位图文件不存在：" + dataFile);
+                    }
+                    // 去重任务未完成时位图只包含部分QQ号，当作完整集合会把已出现的QQ号误判为不存在
+                    if (QQNumberDeduplicator.hasPendingCheckpoint(new File(dataFile))) {
+                        throw new IOException("位图所在目录还有未完成的去重检查点，位图只包含部分QQ号：" + dataFile);
+                    }
+                    bitMap = new BitMap(QQNumberDeduplicator.MAX_QQ_NUM);
+                    // 大小不一致时在打开前就拒绝，不会截断或扩展用户的文件
+                    mappedBitMap = MappedBitMapFile.openExisting(new File(dataFile), bitMap);
+                } else {
+                    bitMap = QQSetOperations.load(dataFile);
+                }
+                System.out.println("📊 已加载QQ号数量：" + bitMap.cardinality());
+                store = MembershipServer.of(bitMap);
+            } else if ("uid".equals(idType)) {
+                if (dataFile.endsWith(BLOOM_FILE_SUFFIX)) {
+                    bloomFilter = PartitionedBloomFilter.load(new File(dataFile));
+                    bloomFile = new File(dataFile);
+                    System.out.println("📊 已加载布隆过滤器：" + dataFile);
+                } else {
+                    PartitionedBloomFilter filter = new PartitionedBloomFilter(
+                            EXPECTED_USER_IDS, FALSE_POSITIVE_PROBABILITY, BLOOM_PARTITION_COUNT);
+                    AtomicLong loaded = new AtomicLong(0);
+                    CompressedIO.readLines(new File(dataFile), (buf, start, end) -> {
+                        long userId = IdBytesParser.parseLong(buf, start, end);
+                        if (userId != IdBytesParser.EMPTY && filter.addIfAbsent(userId)) {
+                            loaded.incrementAndGet();
+                        }
+                    });
+                    System.out.println("📊 已加载用户ID数量：" + loaded.get());
+                    bloomFilter = filter;
+                    bloomFile = new File(dataFile + BLOOM_FILE_SUFFIX);
+                }
+                store = MembershipServer.of(bloomFilter);
+            } else {
+                throw new IllegalArgumentException("未知ID类型：" + idType + "（可选：qq、uid）");
+            }
+            System.out.println("⏱️  加载耗时：" + (System.currentTimeMillis() - startTime) + " 毫秒");
+            MemoryMonitor.printMemorySnapshot("数据加载完成");
+
+            MembershipServer server;
+            if (bindHost == null) {
+                server = new MembershipServer(store, port, SERVER_THREADS);
+            } else {
+                InetAddress bindAddress = InetAddress.getByName(bindHost);
+                if (!bindAddress.isLoopbackAddress()) {
+                    System.out.println("⚠️  监听非回环地址：" + bindHost + "，查询和添加接口没有鉴权，请确认只在可信网络中访问");
+                }
+                server = new MembershipServer(store, bindAddress, port, SERVER_THREADS);
+            }
+            CountDownLatch stopped = new CountDownLatch(1);
+            MappedBitMapFile bitMapToFlush = mappedBitMap;
+            PartitionedBloomFilter bloomFilterToSave = bloomFilter;
+            File bloomFileToSave = bloomFile;
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                server.close();
+                if (bitMapToFlush != null) {
+                    System.out.println("💾 实时添加的QQ号刷回位图文件：" + bitMapToFlush.flush() + " 页");
+                }
+                if (bloomFilterToSave != null) {
+                    try {
+                        bloomFilterToSave.save(bloomFileToSave);
+                        System.out.println("💾 布隆过滤器已保存：" + bloomFileToSave);
+                    } catch (IOException e) {
+                        System.err.println("❌ 保存布隆过滤器失败：" + e.getMessage());
+                    }
+                }
+                stopped.countDown();
+            }));
+            server.start();
+            System.out.println("✅ 成员查询服务已就绪（Ctrl+C退出）");
+            stopped.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            System.err.println("❌ 成员查询服务启动失败：" + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+}
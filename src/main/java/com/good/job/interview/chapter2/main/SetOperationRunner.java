@@ -0,0 +1,82 @@
+package com.good.job.interview.chapter2.main;
+
+import com.good.job.interview.MemoryMonitor;
+import com.good.job.interview.chapter1.BitMap;
+import com.good.job.interview.chapter1.QQSetOperations;
+import com.good.job.interview.chapter2.UserIdSetOperations;
+
+/**
+ * ID集合运算命令行入口
+ * 用法：SetOperationRunner <qq|uid> <intersect|union|difference|retention> <文件A> <文件B> [结果输出文件]
+ * qq：QQ号（2^31以内），基于BitMap按long整字运算；uid：20位等大范围ID，基于哈希分片精确集合运算
+ * retention：A为昨天、B为今天，输出昨天用户在今天的留存率
+ */
+public class SetOperationRunner {
+    /** 大范围ID运算的临时分片目录 */
+    private static final String TEMP_DIR = System.getProperty("java.io.tmpdir") + "/set_operation";
+
+    public static void main(String[] args) {
+        if (args.length < 4) {
+            System.err.println("用法：SetOperationRunner <qq|uid> <intersect|union|difference|retention> <文件A> <文件B> [结果输出文件]");
+            System.exit(1);
+        }
+        String idType = args[0];
+        String operation = args[1];
+        String fileA = args[2];
+        String fileB = args[3];
+        String outputFile = args.length > 4 ? args[4] : null;
+
+        MemoryMonitor.printMemorySnapshot("集合运算开始");
+        long startTime = System.currentTimeMillis();
+        try {
+            if ("qq".equals(idType)) {
+                runQQ(operation, fileA, fileB, outputFile);
+            } else if ("uid".equals(idType)) {
+                runUserId(operation, fileA, fileB, outputFile);
+            } else {
+                throw new IllegalArgumentException("未知ID类型：" + idType + "（可选：qq、uid）");
+            }
+            System.out.println("⏱️  总耗时：" + (System.currentTimeMillis() - startTime) + " 毫秒");
+        } catch (Exception e) {
+            System.err.println("❌ 集合运算失败：" + e.getMessage());
+            e.printStackTrace();
+        } finally {
+            MemoryMonitor.printMemorySnapshot("集合运算结束");
+        }
+    }
+
+    private static void runQQ(String operation, String fileA, String fileB, String outputFile) throws Exception {
+        if ("retention".equals(operation)) {
+            System.out.printf("📊 留存率：%.4f%%%n", QQSetOperations.retention(fileA, fileB) * 100);
+            return;
+        }
+        BitMap result;
+        switch (operation) {
+            case "intersect":
+                result = QQSetOperations.intersect(fileA, fileB);
+                break;
+            case "union":
+                result = QQSetOperations.union(fileA, fileB);
+                break;
+            case "difference":
+                result = QQSetOperations.difference(fileA, fileB);
+                break;
+            default:
+                throw new IllegalArgumentException("未知运算：" + operation);
+        }
+        long count = outputFile == null ? result.cardinality() : QQSetOperations.writeTo(result, outputFile);
+        System.out.println("📊 结果数量：" + count);
+    }
+
+    private static void runUserId(String operation, String fileA, String fileB, String outputFile) throws Exception {
+        UserIdSetOperations setOperations = new UserIdSetOperations(TEMP_DIR);
+        if ("retention".equals(operation)) {
+            UserIdSetOperations.SetStatistics statistics = setOperations.compute(fileA, fileB, UserIdSetOperations.Operation.INTERSECT, null);
+            System.out.printf("📊 留存率：%.4f%%（%d / %d）%n", statistics.getRetention() * 100, statistics.getIntersection(), statistics.getSizeA());
+            return;
+        }
+        UserIdSetOperations.Operation op = UserIdSetOperations.Operation.valueOf(operation.toUpperCase());
+        UserIdSetOperations.SetStatistics statistics = setOperations.compute(fileA, fileB, op, outputFile);
+        System.out.println("📊 结果数量：" + statistics.count(op));
+    }
+}
@@ -0,0 +1,88 @@
+package com.good.job.interview.chapter2.main;
+
+import com.good.job.interview.CompressedIO;
+import com.good.job.interview.IdBytesParser;
+import com.good.job.interview.MappedLineReader;
+import com.good.job.interview.chapter2.SlidingWindowUVCounter;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 滑动窗口UV统计命令行入口
+ * 用法：SlidingWindowUVRunner [事件文件]（不传文件时从标准输入持续读取事件流）
+ * 事件格式：每行 "毫秒时间戳,用户ID"，按事件时间大致有序；事件时间每跨过一个报告间隔输出一次最近1小时 / 1天 / 7天UV
+ */
+public class SlidingWindowUVRunner {
+    // ===================== 可配置参数 =====================
+    /** 时间桶长度：5分钟（窗口按5分钟粒度滑动） */
+    private static final long BUCKET_MILLIS = 5 * 60 * 1000L;
+    /** 桶数量：覆盖7天 */
+    private static final int BUCKET_COUNT = 7 * 24 * 12;
+    /** 每个桶HyperLogLog的精度：2^14个寄存器，标准误差约0.8%，每桶16KB（共约32MB） */
+    private static final int HLL_PRECISION = 14;
+    /** 报告间隔（事件时间）：1小时 */
+    private static final long REPORT_INTERVAL_MILLIS = 60 * 60 * 1000L;
+    // =====================================================
+    private static final long HOUR_MILLIS = 60 * 60 * 1000L;
+    private static final long DAY_MILLIS = 24 * HOUR_MILLIS;
+    private static final long WEEK_MILLIS = 7 * DAY_MILLIS;
+
+    public static void main(String[] args) {
+        SlidingWindowUVCounter counter = new SlidingWindowUVCounter(BUCKET_MILLIS, BUCKET_COUNT, HLL_PRECISION);
+        System.out.println("滑动窗口UV统计：桶数量：" + BUCKET_COUNT + "，桶内存：" + counter.getMemorySize() / 1024 / 1024 + "MB");
+
+        AtomicLong eventCount = new AtomicLong(0);
+        AtomicLong nextReport = new AtomicLong(Long.MIN_VALUE);
+        MappedLineReader.LineHandler handler = (buf, start, end) -> {
+            // 按逗号拆分时间戳和用户ID
+            int comma = start;
+            while (comma < end && buf.get(comma) != ',') {
+                comma++;
+            }
+            if (comma == end) {
+                if (IdBytesParser.parseLong(buf, start, end) == IdBytesParser.EMPTY) {
+                    return; // 空行
+                }
+                throw new IOException("事件格式错误（应为 时间戳,用户ID）：第" + (eventCount.get() + 1) + "个事件");
+            }
+            long timestamp = IdBytesParser.parseLong(buf, start, comma);
+            long userId = IdBytesParser.parseLong(buf, comma + 1, end);
+            if (timestamp == IdBytesParser.EMPTY || userId == IdBytesParser.EMPTY) {
+                return;
+            }
+
+            // 事件时间跨过报告点时，先输出截至上一个事件的窗口UV
+            if (nextReport.get() == Long.MIN_VALUE) {
+                nextReport.set((timestamp / REPORT_INTERVAL_MILLIS + 1) * REPORT_INTERVAL_MILLIS);
+            } else if (timestamp >= nextReport.get()) {
+                report(counter, eventCount.get());
+                nextReport.set((timestamp / REPORT_INTERVAL_MILLIS + 1) * REPORT_INTERVAL_MILLIS);
+            }
+            counter.add(timestamp, userId);
+            eventCount.incrementAndGet();
+        };
+
+        try {
+            if (args.length > 0) {
+                CompressedIO.readLines(new File(args[0]), handler);
+            } else {
+                CompressedIO.readLines(System.in, handler);
+            }
+            report(counter, eventCount.get());
+        } catch (IOException | RuntimeException e) {
+            System.err.println("❌ 滑动窗口UV统计失败：" + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    private static void report(SlidingWindowUVCounter counter, long eventCount) {
+        System.out.println("📊 截至 " + Instant.ofEpochMilli(counter.getLatestBucketStart() + BUCKET_MILLIS)
+                + "（累计事件：" + eventCount + "，丢弃迟到事件：" + counter.getDroppedCount() + "）"
+                + " 1小时UV：" + counter.estimate(HOUR_MILLIS)
+                + "，1天UV：" + counter.estimate(DAY_MILLIS)
+                + "，7天UV：" + counter.estimate(WEEK_MILLIS));
+    }
+}
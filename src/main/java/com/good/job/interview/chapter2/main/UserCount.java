@@ -1,9 +1,13 @@
 package com.good.job.interview.chapter2.main;
 
+import com.good.job.interview.JobCheckpoint;
 import com.good.job.interview.MemoryMonitor;
 import com.good.job.interview.chapter2.DataShardingUtil;
+import com.good.job.interview.chapter2.TopKCandidateHeap;
 import com.good.job.interview.chapter2.TotalUVMergeUtil;
+import com.good.job.interview.chapter2.UVStatistics;
 
+import java.io.File;
 import java.io.IOException;
 
 
@@ -15,7 +19,12 @@ public class UserCount {
     private static final String SHARD_DIR = "/Users/chenhao/code/personal/mybook/data/shard";
     /** 内存监控间隔（毫秒） */
     private static final long MEMORY_MONITOR_INTERVAL = 2000;
+    /** 高频用户ID数量（大于0时在统计UV的同一遍扫描中统计出现次数最多的K个用户ID，0表示不统计） */
+    private static final int TOP_K = 0;
+    /** 断点续跑检查点文件（记录分片是否完成、已完成分片的UV；中断后重新运行从断点继续，全流程完成后自动删除） */
+    private static final String CHECKPOINT_FILE = SHARD_DIR + "/uv_job.checkpoint";
     // =========================================================================
+    private static final String CHECKPOINT_KEY_SHARDED = "sharded";
 
     public static void main(String[] args) {
         // 1. 初始化：启动内存监控，打印流程开始信息
@@ -24,17 +33,30 @@ public class UserCount {
         long startTime = System.currentTimeMillis();
 
         try {
-            // 2. 第一步：原始文件分片
+            new File(SHARD_DIR).mkdirs();
+            JobCheckpoint checkpoint = new JobCheckpoint(new File(CHECKPOINT_FILE));
+
+            // 2. 第一步：原始文件分片（检查点记录分片已完成时跳过）
             System.out.println("\n========== 第一步：开始分片原始用户ID文件 ==========");
-            MemoryMonitor.printMemorySnapshot("分片操作开始");
-            DataShardingUtil.shard(RAW_FILE_PATH, SHARD_DIR);
-            System.out.println("✅ 分片操作完成，分片文件存储目录：" + SHARD_DIR);
-            MemoryMonitor.printMemorySnapshot("分片操作完成");
+            if (checkpoint.getLong(CHECKPOINT_KEY_SHARDED, 0) == 1) {
+                System.out.println("⏩ 检查点显示分片已完成，跳过分片");
+            } else {
+                MemoryMonitor.printMemorySnapshot("分片操作开始");
+                // 上次分片中途中断时分片文件不完整，清空后重新分片
+                DataShardingUtil.clearShards(SHARD_DIR);
+                // 任一原始文件分片失败时shard抛出异常，不会记录分片完成，下次运行重新分片
+                DataShardingUtil.shard(RAW_FILE_PATH, SHARD_DIR);
+                checkpoint.setLong(CHECKPOINT_KEY_SHARDED, 1);
+                checkpoint.save();
+                System.out.println("✅ 分片操作完成，分片文件存储目录：" + SHARD_DIR);
+                MemoryMonitor.printMemorySnapshot("分片操作完成");
+            }
 
-            // 3. 第二步：合并所有分片UV，得到总UV（内部会并发统计每个分片）
+            // 3. 第二步：合并所有分片UV，得到总UV（内部会并发统计每个分片，开启高频统计时同一遍扫描统计高频用户ID）
             System.out.println("\n========== 第二步：开始统计并合并所有分片UV ==========");
             MemoryMonitor.printMemorySnapshot("UV统计合并开始");
-            long totalUV = TotalUVMergeUtil.mergeTotalUV(SHARD_DIR);
+            UVStatistics statistics = TotalUVMergeUtil.mergeShards(SHARD_DIR, checkpoint, TOP_K);
+            long totalUV = statistics.getUV();
             MemoryMonitor.printMemorySnapshot("UV统计合并完成");
 
             // 4. 输出最终结果
@@ -43,7 +65,15 @@ public class UserCount {
             System.out.println("📊 原始文件路径：" + RAW_FILE_PATH);
             System.out.println("📊 分片目录：" + SHARD_DIR);
             System.out.println("📊 总UV数量：" + totalUV);
+            if (TOP_K > 0) {
+                System.out.println("📊 高频用户ID Top-" + TOP_K + "（ID / 出现次数 / 误差上界）：");
+                for (TopKCandidateHeap.Entry entry : statistics.getTopK()) {
+                    System.out.println("    " + entry);
+                }
+            }
             System.out.println("⏱️  总耗时：" + totalTime + " 秒");
+            // 只有全流程成功才删除检查点；任一分片失败时异常跳过这里，检查点保留已完成分片的进度
+            checkpoint.delete();
 
         } catch (IOException e) {
             System.err.println("❌ IO异常：" + e.getMessage());
@@ -1,22 +1,15 @@
 package com.good.job.interview.chapter2.script;
 
 import com.good.job.interview.MemoryMonitor;
-
-import java.io.BufferedWriter;
-import java.io.FileOutputStream;
-import java.io.OutputStreamWriter;
-import java.nio.charset.StandardCharsets;
-import java.text.DecimalFormat;
+import com.good.job.interview.ParallelIdFileGenerator;
 
 /**
  * 20位带指定前缀的用户ID生成工具
- * 支持生成1亿级ID，分批写入文件避免内存溢出，集成内存监控
+ * 支持生成1亿级ID，多线程并行写入文件，集成内存监控
  */
 public class UserIdGenerator {
     // 目标生成数量：1亿
     private static final long TOTAL_COUNT = 100_000_000L;
-    // 每批写入数量（100万/批，平衡性能和内存）
-    private static final long BATCH_SIZE = 1_000_000L;
 
     // 测试main方法
     public static void main(String[] args) {
@@ -46,55 +39,22 @@ public class UserIdGenerator {
             throw new IllegalArgumentException("前缀长度不能等于20位（需留至少1位给后缀保证唯一性）！");
         }
 
-        // 3. 创建数字格式化器：补前导零，保证后缀长度固定
-        DecimalFormat suffixFormatter = new DecimalFormat();
-        suffixFormatter.setGroupingUsed(false); // 禁用千分位分隔符
-        suffixFormatter.setMinimumIntegerDigits(suffixLength); // 最少位数=后缀长度，不足补0
-
-        // 4. 初始化文件写入流（缓冲写入提升效率）
-        try (BufferedWriter writer = new BufferedWriter(
-                new OutputStreamWriter(new FileOutputStream(outputFilePath), StandardCharsets.UTF_8)
-        )) {
+        // 3. 并行生成：数字直接写入字节缓冲区，各线程按文件位置写入互不重叠的区域（后缀从1开始自增，补前导零）
+        try {
             // 启动内存监控（每2秒监测一次，适配大数量生成）
             MemoryMonitor.start(2000);
             MemoryMonitor.printMemorySnapshot("ID生成开始");
-
-            long generatedCount = 0L; // 已生成数量
-            long batchNum = 0L; // 批次号
-
             System.out.println("开始生成1亿个20位用户ID，前缀：" + prefix + "，输出文件：" + outputFilePath);
+            long startMs = System.currentTimeMillis();
 
-            // 5. 分批生成+写入（避免1亿数据全放内存）
-            while (generatedCount < TOTAL_COUNT) {
-                batchNum++;
-                long currentBatchSize = Math.min(BATCH_SIZE, TOTAL_COUNT - generatedCount);
-
-                // 生成当前批次的ID并写入
-                for (long i = 0; i < currentBatchSize; i++) {
-                    long suffixNum = generatedCount + i + 1; // 后缀自增数（从1开始）
-                    String suffix = suffixFormatter.format(suffixNum); // 补前导零
-                    String userId = prefix + suffix; // 拼接20位ID
-
-                    // 写入文件（每行一个ID）
-                    writer.write(userId);
-                    writer.newLine();
-                }
-
-                // 刷新缓冲区，确保数据写入磁盘
-                writer.flush();
-
-                // 更新已生成数量
-                generatedCount += currentBatchSize;
-
-                // 打印进度+内存快照
-                double progress = (double) generatedCount / TOTAL_COUNT * 100;
-                System.out.printf("✅ 批次%d完成，累计生成%d条ID，进度：%.2f%%%n",
-                        batchNum, generatedCount, progress);
-                MemoryMonitor.printMemorySnapshot("批次" + batchNum + "完成");
-            }
+            new ParallelIdFileGenerator()
+                    .prefix(prefix)
+                    .startId(1)
+                    .suffixWidth(suffixLength)
+                    .generate(outputFilePath, TOTAL_COUNT);
 
             MemoryMonitor.printMemorySnapshot("ID生成完成");
-            System.out.println("🎉 1亿个20位用户ID生成完成！文件路径：" + outputFilePath);
+            System.out.println("🎉 1亿个20位用户ID生成完成！耗时：" + (System.currentTimeMillis() - startMs) + "ms，文件路径：" + outputFilePath);
 
         } catch (Exception e) {
             System.err.println("❌ ID生成失败：" + e.getMessage());